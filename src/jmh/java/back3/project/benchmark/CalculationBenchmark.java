@@ -0,0 +1,120 @@
+package back3.project.benchmark;
+
+import back3.project.dto.OperationDto;
+import back3.project.dto.OperationTime;
+import back3.project.dto.PppDto;
+import back3.project.entity.Ppp;
+import back3.project.entity.PppOperation;
+import back3.project.fleet.SyntheticFleet;
+import back3.project.service.ForecastResult;
+import back3.project.service.WorkingHoursCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячая математика расчёта на синтетическом парке: один вызов — проход по всем станкам
+ * (для WorkingHoursCalculator — по всем закрытым операциям). Сравнивать прогоны
+ * с одинаковым machines: парк детерминирован.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculationBenchmark {
+
+    // Пары start/stop закрытых операций парка
+    @State(Scope.Benchmark)
+    public static class Intervals {
+
+        LocalDateTime[] starts;
+        LocalDateTime[] stops;
+
+        @Setup(Level.Trial)
+        public void setUp(FleetState fleet) {
+            List<LocalDateTime[]> intervals = new ArrayList<>();
+            for (PppOperation operation : SyntheticFleet.generate(fleet.machines).getOperations()) {
+                if (operation.getStartTime() != null && operation.getStopTime() != null) {
+                    intervals.add(new LocalDateTime[]{operation.getStartTime(), operation.getStopTime()});
+                }
+            }
+            starts = new LocalDateTime[intervals.size()];
+            stops = new LocalDateTime[intervals.size()];
+            for (int i = 0; i < intervals.size(); i++) {
+                starts[i] = intervals.get(i)[0];
+                stops[i] = intervals.get(i)[1];
+            }
+        }
+    }
+
+    // Как в расчёте этапа: операции внутри одного дня идут по короткому пути
+    @Benchmark
+    public void calculateOperationDuration(FleetState fleet, Intervals intervals, Blackhole blackhole) {
+        for (int i = 0; i < intervals.starts.length; i++) {
+            blackhole.consume(WorkingHoursCalculator.calculateOperationDuration(intervals.starts[i], intervals.stops[i], fleet.productionCalendar));
+        }
+    }
+
+    @Benchmark
+    public void calculateTimeDifferences(FleetState fleet, Blackhole blackhole) {
+        for (List<OperationDto> operationDtos : fleet.operationsByMachine) {
+            List<OperationTime> operationTimes = fleet.interOperationTimeService.calculateTimeDifferences(operationDtos);
+            blackhole.consume(operationTimes);
+        }
+    }
+
+    // Цепочка от плановой даты начала (прежний ForecastService)
+    @Benchmark
+    public void forecastFromPlanDate(FleetState fleet, Blackhole blackhole) {
+        for (int i = 0; i < fleet.ppps.size(); i++) {
+            Ppp ppp = fleet.ppps.get(i);
+            ForecastResult forecast = fleet.forecastEngine.forecast(ppp.getPlanDateStart(), null, fleet.operationsByMachine.get(i));
+            blackhole.consume(forecast);
+        }
+    }
+
+    // Цепочка от фактической/прогнозной даты начала (прежний ForecastStartService)
+    @Benchmark
+    public void forecastFromStartDate(FleetState fleet, Blackhole blackhole) {
+        for (int i = 0; i < fleet.ppps.size(); i++) {
+            Ppp ppp = fleet.ppps.get(i);
+            LocalDate startDate = ppp.getFactDateStart() != null ? ppp.getFactDateStart() : ppp.getForecastDateStart();
+            ForecastResult forecast = fleet.forecastEngine.forecast(null, startDate, fleet.operationsByMachine.get(i));
+            blackhole.consume(forecast);
+        }
+    }
+
+    @Benchmark
+    public void isTimeExceedsNorm(FleetState fleet, Blackhole blackhole) {
+        for (List<OperationDto> operationDtos : fleet.operationsByMachine) {
+            for (OperationDto operationDto : operationDtos) {
+                blackhole.consume(fleet.operationService.isTimeExceedsNorm(operationDto));
+            }
+        }
+    }
+
+    // Полная сборка PppDto станка из снимка: операции, опции, межоперационное время, прогнозы
+    @Benchmark
+    public void buildPppDto(FleetState fleet, Blackhole blackhole) {
+        for (Ppp ppp : fleet.ppps) {
+            PppDto pppDto = fleet.pppService.buildPppDto(ppp, fleet.snapshot);
+            blackhole.consume(pppDto);
+        }
+    }
+}
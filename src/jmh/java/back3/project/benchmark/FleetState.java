@@ -0,0 +1,101 @@
+package back3.project.benchmark;
+
+import back3.project.dto.OperationDto;
+import back3.project.entity.Ppp;
+import back3.project.fleet.SyntheticFleet;
+import back3.project.repository.PppEmployeesRepository;
+import back3.project.repository.PppNormsRepository;
+import back3.project.repository.PppOperationRepository;
+import back3.project.repository.PppRepository;
+import back3.project.repository.ProblemsRepository;
+import back3.project.service.ForecastEngine;
+import back3.project.service.InterOperationTimeService;
+import back3.project.service.OperationCalculationService;
+import back3.project.service.OperationService;
+import back3.project.service.PipelineMetrics;
+import back3.project.service.PppConversionService;
+import back3.project.service.PppDataSnapshot;
+import back3.project.service.PppDataSnapshotService;
+import back3.project.service.PppService;
+import back3.project.service.ProductionCalendar;
+import back3.project.service.ReferenceDataCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сервисы расчёта без Spring-контекста и снимок данных синтетического парка.
+ * Снимок собирает настоящий PppDataSnapshotService, репозитории отдают строки SyntheticFleet.
+ */
+@State(Scope.Benchmark)
+public class FleetState {
+
+    @Param({"100", "1000"})
+    public int machines;
+
+    public ProductionCalendar productionCalendar;
+    public OperationService operationService;
+    public InterOperationTimeService interOperationTimeService;
+    public ForecastEngine forecastEngine;
+    public PppService pppService;
+
+    public PppDataSnapshot snapshot;
+    public List<Ppp> ppps;
+    // Агрегированные операции каждого станка, посчитанные один раз
+    public List<List<OperationDto>> operationsByMachine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticFleet fleet = SyntheticFleet.generate(machines);
+
+        PppRepository pppRepository = mock(PppRepository.class);
+        PppOperationRepository pppOperationRepository = mock(PppOperationRepository.class);
+        ProblemsRepository problemsRepository = mock(ProblemsRepository.class);
+        PppNormsRepository pppNormsRepository = mock(PppNormsRepository.class);
+        PppEmployeesRepository pppEmployeesRepository = mock(PppEmployeesRepository.class);
+        when(pppRepository.findAll()).thenReturn(fleet.getPpps());
+        when(pppOperationRepository.findRowsWithEmployee()).thenReturn(fleet.operationRows());
+        when(pppOperationRepository.aggregateStages()).thenReturn(fleet.stageAggregates());
+        when(problemsRepository.sumNormHoursByTransactionAndEmployee()).thenReturn(fleet.problemsNormHoursSums());
+        when(pppNormsRepository.findAll()).thenReturn(fleet.getNorms());
+        when(pppEmployeesRepository.findAll()).thenReturn(fleet.getEmployees());
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(pppNormsRepository, pppEmployeesRepository);
+        ReflectionTestUtils.setField(referenceDataCache, "ttl", Duration.ofDays(1));
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+
+        productionCalendar = new ProductionCalendar(new ClassPathResource("production-calendar.csv"));
+        PppConversionService pppConversionService = new PppConversionService();
+        OperationCalculationService operationCalculationService = new OperationCalculationService(pppConversionService, productionCalendar);
+        PppDataSnapshotService pppDataSnapshotService = new PppDataSnapshotService(pppRepository, pppOperationRepository,
+                problemsRepository, referenceDataCache, pipelineMetrics);
+        operationService = new OperationService(pppOperationRepository, operationCalculationService, pipelineMetrics, pppDataSnapshotService);
+        interOperationTimeService = new InterOperationTimeService(productionCalendar);
+        forecastEngine = new ForecastEngine(productionCalendar);
+        // Параллельный исполнитель не нужен: бенчмарк меряет сборку одного станка
+        pppService = new PppService(pppDataSnapshotService, operationService, pppConversionService,
+                interOperationTimeService, forecastEngine, null, pipelineMetrics);
+
+        snapshot = pppDataSnapshotService.loadSnapshot();
+        ppps = snapshot.getPpps();
+        operationsByMachine = new ArrayList<>(ppps.size());
+        for (Ppp ppp : ppps) {
+            List<OperationDto> operationDtos = operationService.getAggregatedOperations(ppp.getTransaction(), snapshot);
+            operationDtos.forEach(operationDto -> operationDto.setIsTimeExceedsNorm(operationService.isTimeExceedsNorm(operationDto)));
+            operationsByMachine.add(operationDtos);
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package back3.project.controllers;
 
+import back3.project.dto.EmployeeDto;
+import back3.project.dto.EmployeeOccupancyDto;
 import back3.project.dto.EmployeePerformanceDto;
+import back3.project.dto.OccupancyTimelineDto;
+import back3.project.service.EmployeeOccupancyService;
 import back3.project.service.EmployeePerformanceService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +27,7 @@ import java.util.List;
 public class EmployeeController {
 
     private final EmployeePerformanceService employeePerformanceService;
+    private final EmployeeOccupancyService employeeOccupancyService;
 
     @GetMapping("/performance")
     public ResponseEntity<List<EmployeePerformanceDto>> getEmployeePerformances(
@@ -28,4 +37,32 @@ public class EmployeeController {
         List<EmployeePerformanceDto> performances = employeePerformanceService.getEmployeePerformances(month, year);
         return ResponseEntity.ok(performances);
     }
-}
\ No newline at end of file
+
+    // Сотрудники, занятые в момент at (по умолчанию — сейчас)
+    @GetMapping("/busy")
+    public List<EmployeeDto> getBusyEmployees(
+            @RequestParam(value = "at", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return employeeOccupancyService.findBusyEmployees(at != null ? at : LocalDateTime.now());
+    }
+
+    // Занятость сотрудника в [from, to) с интервалами для шкалы времени
+    @GetMapping("/{employeeId}/occupancy")
+    public ResponseEntity<EmployeeOccupancyDto> getOccupancy(
+            @PathVariable Long employeeId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return employeeOccupancyService.getOccupancy(employeeId, from, to)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Число занятых по специализациям для каждой минуты дня
+    @GetMapping("/timeline")
+    public OccupancyTimelineDto getTimeline(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return employeeOccupancyService.getTimeline(date != null ? date : LocalDate.now());
+    }
+}
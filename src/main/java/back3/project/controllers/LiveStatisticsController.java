@@ -0,0 +1,23 @@
+package back3.project.controllers;
+
+import back3.project.service.LiveStatisticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://192.168.8.35:3000")
+public class LiveStatisticsController {
+
+    private final LiveStatisticsService liveStatisticsService;
+
+    // События: statistics (EmployeeStatisticsDto), snapshot (версия /api/ppp при подключении), ppp-delta (PppDeltaDto)
+    @GetMapping(value = "/api/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        return liveStatisticsService.subscribe();
+    }
+}
@@ -1,32 +1,237 @@
 package back3.project.controllers;
 
+import back3.project.dto.PppFilter;
+import back3.project.dto.PppDto;
+import back3.project.dto.PppFields;
 import back3.project.dto.PppListDto;
+import back3.project.entity.Ppp;
+import back3.project.service.PipelineMetrics;
+import back3.project.service.PppDataSnapshot;
+import back3.project.service.PppDataSnapshotService;
+import back3.project.service.PppListSnapshot;
+import back3.project.service.PppListSnapshotService;
 import back3.project.service.PppService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
-@CrossOrigin(origins = "http://192.168.8.35:3000")
+@CrossOrigin(origins = "http://192.168.8.35:3000", exposedHeaders = {"ETag", PppController.TOTAL_COUNT_HEADER})
 @RequestMapping("/api/ppp")
 @RequiredArgsConstructor
 public class PppController {
 
     private final PppService pppService;
+    private final PppListSnapshotService pppListSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics pipelineMetrics;
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
 
     @GetMapping
-    public ResponseEntity<PppListDto> getAllPpps() {
+    public ResponseEntity<?> getAllPpps(PppFilter filter,
+                                        @RequestParam(required = false) String fields,
+                                        WebRequest request) {
+        PppFields pppFields;
+        try {
+            pppFields = PppFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (!isValidPage(filter)) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            PppListDto pppListDto = pppService.getAllPpps();
-            return ResponseEntity.ok(pppListDto);
+            if (!pppFields.isAll() && filter.isEmpty() && pppListSnapshotService.isEnabled()) {
+                // Весь парк уже посчитан в снимке — только вырезаем запрошенные поля
+                PppListDto pppListDto = pppListSnapshotService.getSnapshot().getPppListDto();
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(serialize(pppListDto, pppFields));
+            }
+            if (!filter.isEmpty() || !pppFields.isAll()) {
+                // Фильтр, страница или часть полей: считаем только нужные станки и этапы, кэш полного списка не используется
+                PppListDto pppListDto = pppService.getPpps(filter, pppFields);
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+                if (!filter.isEmpty()) {
+                    response.header(TOTAL_COUNT_HEADER, String.valueOf(pppListDto.getTotalCount()));
+                }
+                return response.body(serialize(pppListDto, pppFields));
+            }
+            if (!pppListSnapshotService.isEnabled()) {
+                PppListDto pppListDto = pppService.getAllPpps();
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(serialize(pppListDto, pppFields));
+            }
+
+            // Отдаём готовый JSON из памяти; при совпадении If-None-Match — 304 без тела
+            PppListSnapshot snapshot = pppListSnapshotService.getSnapshot();
+            if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), snapshot.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(snapshot.getEtag())
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(snapshot.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(snapshot.getJson());
         } catch (Exception e) {
             // Логируем ошибку
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    // Потоковая выдача: по одному станку на строку (NDJSON). Параметры те же, что у GET /api/ppp.
+    // Станки читаются и пишутся частями по IN_CHUNK_SIZE: операции, агрегаты этапов и суммы faults
+    // загружаются на часть и отпускаются после её отправки. В памяти остаются строки plan_ppp под фильтром
+    // и снимок одной части. Без фильтра и fields= станки берутся готовыми из снимка /api/ppp
+    @GetMapping(value = "/stream", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPpps(PppFilter filter,
+                                                            @RequestParam(required = false) String fields) {
+        PppFields pppFields;
+        try {
+            pppFields = PppFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!isValidPage(filter)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ObjectWriter writer = objectMapper.writerFor(PppDto.class);
+
+        if (filter.isEmpty() && pppFields.isAll() && pppListSnapshotService.isEnabled()) {
+            List<PppDto> pppDtos = pppListSnapshotService.getSnapshot().getPppListDto().getPpps();
+            return ndjson(filter, pppDtos.size(), outputStream -> {
+                for (PppDto pppDto : pppDtos) {
+                    writeLine(outputStream, serialize(pppDto, pppFields, writer));
+                }
+            });
+        }
+
+        // Первая часть читается до начала ответа, чтобы ошибка базы вернулась статусом, а не оборванным потоком;
+        // каждая часть читается в своей транзакции
+        Page<Ppp> ppps = pppService.findPpps(filter);
+        List<Ppp> rows = ppps.getContent();
+        AtomicReference<PppDataSnapshot> firstChunk = new AtomicReference<>(
+                rows.isEmpty() ? null : pppService.loadSnapshotForPpps(chunk(rows, 0)));
+
+        return ndjson(filter, ppps.getTotalElements(), outputStream -> {
+            for (int from = 0; from < rows.size(); from += PppDataSnapshotService.IN_CHUNK_SIZE) {
+                List<Ppp> chunk = chunk(rows, from);
+                PppDataSnapshot snapshot = from == 0 ? firstChunk.getAndSet(null) : pppService.loadSnapshotForPpps(chunk);
+                for (Ppp ppp : chunk) {
+                    PppDto pppDto = pppService.buildPppDtoOrFailed(ppp, snapshot, pppFields);
+                    writeLine(outputStream, serialize(pppDto, pppFields, writer));
+                }
+            }
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(PppFilter filter, long totalCount, StreamingResponseBody body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .cacheControl(CacheControl.noStore());
+        if (!filter.isEmpty()) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(totalCount));
+        }
+        return response.body(body);
+    }
+
+    // Строка уходит клиенту сразу, не дожидаясь конца части
+    private static void writeLine(OutputStream outputStream, byte[] json) throws IOException {
+        outputStream.write(json);
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
+    private static List<Ppp> chunk(List<Ppp> ppps, int from) {
+        return ppps.subList(from, Math.min(from + PppDataSnapshotService.IN_CHUNK_SIZE, ppps.size()));
+    }
+
+    // JSON собирается здесь, а не в конвертере Spring, чтобы время попало в этап serialization
+    private byte[] serialize(PppListDto pppListDto, PppFields pppFields) throws JsonProcessingException {
+        Timer.Sample sample = Timer.start();
+        try {
+            return objectMapper.writeValueAsBytes(pppFields.isAll() ? pppListDto : selectFields(pppListDto.getPpps(), pppFields));
+        } finally {
+            sample.stop(pipelineMetrics.timer(PipelineMetrics.SERIALIZATION));
+        }
+    }
+
+    // Одна строка NDJSON
+    private byte[] serialize(PppDto pppDto, PppFields pppFields, ObjectWriter writer) throws JsonProcessingException {
+        Timer.Sample sample = Timer.start();
+        try {
+            return pppFields.isAll() ? writer.writeValueAsBytes(pppDto) : objectMapper.writeValueAsBytes(selectFields(pppDto, pppFields));
+        } finally {
+            sample.stop(pipelineMetrics.timer(PipelineMetrics.SERIALIZATION));
+        }
+    }
+
+    // {"ppps": [...]} только с запрошенными полями станков
+    private ObjectNode selectFields(List<PppDto> pppDtos, PppFields pppFields) {
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode ppps = result.putArray("ppps");
+        for (PppDto pppDto : pppDtos) {
+            ppps.add(selectFields(pppDto, pppFields));
+        }
+        return result;
+    }
+
+    private ObjectNode selectFields(PppDto pppDto, PppFields pppFields) {
+        ObjectNode node = objectMapper.valueToTree(pppDto);
+        node.retain(pppFields.getRequested());
+        return node;
+    }
+
+    // If-None-Match: список ETag через запятую или "*"; слабые W/"..." сравниваются по значению
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isValidPage(PppFilter filter) {
+        return (filter.getPage() == null || filter.getPage() >= 0)
+                && (filter.getSize() == null || (filter.getSize() >= 1 && filter.getSize() <= MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,42 @@
+package back3.project.controllers;
+
+import back3.project.dto.ReferenceCacheStatsDto;
+import back3.project.service.ReferenceData;
+import back3.project.service.ReferenceDataCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@CrossOrigin(origins = "http://192.168.8.35:3000")
+@RequestMapping("/api/reference-data")
+@RequiredArgsConstructor
+public class ReferenceDataController {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    @GetMapping("/stats")
+    public ReferenceCacheStatsDto getStats() {
+        return toStats(referenceDataCache.get());
+    }
+
+    // Явное обновление справочников после правки operation_norm или specialization
+    @PostMapping("/refresh")
+    public ReferenceCacheStatsDto refresh() {
+        return toStats(referenceDataCache.refresh());
+    }
+
+    private ReferenceCacheStatsDto toStats(ReferenceData data) {
+        ReferenceCacheStatsDto stats = new ReferenceCacheStatsDto();
+        stats.setNormsCount(data.getNormsCount());
+        stats.setEmployeesCount(data.getEmployeesCount());
+        stats.setLoadedAt(data.getLoadedAt());
+        stats.setFound(referenceDataCache.getFound());
+        stats.setNotFound(referenceDataCache.getNotFound());
+        stats.setRefreshes(referenceDataCache.getRefreshes());
+        return stats;
+    }
+}
@@ -0,0 +1,50 @@
+package back3.project.controllers;
+
+import back3.project.repository.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Число SQL-запросов и загруженных строк на HTTP-запрос, по шаблону URI
+@Component
+@RequiredArgsConstructor
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("ppp.request.sql.statements")
+                    .description("SQL-запросы на HTTP-запрос")
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(SqlStatementCounter.getStatements());
+            DistributionSummary.builder("ppp.request.rows.loaded")
+                    .description("Строки, загруженные из базы на HTTP-запрос")
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(SqlStatementCounter.getRows());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package back3.project.controllers;
+
+import back3.project.dto.ScheduleDto;
+import back3.project.dto.ScheduleRequestDto;
+import back3.project.service.FleetScheduleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://192.168.8.35:3000")
+@RequestMapping("/api/schedule")
+@RequiredArgsConstructor
+public class ScheduleController {
+
+    private final FleetScheduleService fleetScheduleService;
+
+    // Прогноз по всему парку с учётом численности сотрудников
+    @GetMapping
+    public ScheduleDto getSchedule() {
+        return fleetScheduleService.getSchedule();
+    }
+
+    // Тот же расчёт с изменёнными датами начала станков и/или численностью; в базу ничего не пишется
+    @PostMapping("/what-if")
+    public ScheduleDto whatIf(@RequestBody ScheduleRequestDto request) {
+        return fleetScheduleService.schedule(
+                request.getStartDates() != null ? request.getStartDates() : Map.of(),
+                request.getHeadcount() != null ? request.getHeadcount() : Map.of());
+    }
+}
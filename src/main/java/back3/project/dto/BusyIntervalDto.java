@@ -0,0 +1,11 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class BusyIntervalDto {
+    private LocalDateTime start;
+    private LocalDateTime stop;
+}
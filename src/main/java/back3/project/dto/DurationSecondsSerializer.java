@@ -0,0 +1,44 @@
+package back3.project.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Длительность в секундах -> "HH:mm:ss" в JSON. Внутри расчётов длительности
+ * хранятся числом, строка собирается только при сериализации.
+ * Отрицательные значения выводятся как раньше у Duration: -3661 -> "-1:-1:-1".
+ */
+public class DurationSecondsSerializer extends StdSerializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public DurationSecondsSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long seconds, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeString(format(seconds));
+    }
+
+    // Те же части, что Duration.toHours() / toMinutesPart() / toSecondsPart(), с форматом %02d
+    public static String format(long seconds) {
+        StringBuilder sb = new StringBuilder(10);
+        appendPart(sb, seconds / 3600);
+        sb.append(':');
+        appendPart(sb, (seconds / 60) % 60);
+        sb.append(':');
+        appendPart(sb, seconds % 60);
+        return sb.toString();
+    }
+
+    private static void appendPart(StringBuilder sb, long value) {
+        if (value >= 0 && value < 10) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+}
@@ -0,0 +1,18 @@
+package back3.project.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class EmployeeOccupancyDto {
+    private EmployeeDto employee;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long busyTime;
+    private double occupancy;             // Доля занятого времени в [from, to)
+    private List<BusyIntervalDto> intervals;
+}
@@ -1,5 +1,6 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 @Data
@@ -11,9 +12,12 @@ public class EmployeePerformanceDto {
     private Long totalOperations;
     private Long onTimeOperations;
     private Double onTimePercentage;
-    private String totalTimeSpent;
-    private String totalNorm;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long totalTimeSpent;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long totalNorm;
     private String normPercentage;
-    private String workingHoursFund;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long workingHoursFund;
     private Double workingHoursFundUsage;
 }
\ No newline at end of file
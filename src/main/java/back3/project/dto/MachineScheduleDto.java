@@ -0,0 +1,16 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class MachineScheduleDto {
+    private String transaction;
+    private String status;
+    private LocalDate startDate;
+    private List<ScheduledStageDto> stages;
+    private LocalDate forecastCompletionDate;
+    private boolean scheduled;          // false — для какого-то этапа нет ни одного сотрудника
+}
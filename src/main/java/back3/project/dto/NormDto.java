@@ -1,5 +1,6 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 @Data
@@ -7,4 +8,12 @@ public class NormDto {
     private String operationNormName;
     private String operationNorm;
     private String operationType;
-}
\ No newline at end of file
+
+    @JsonIgnore
+    private Double operationNormHours; // operationNorm, разобранная один раз при загрузке справочника
+
+    // Норма в часах: разобранное значение из кэша, иначе разбираем строку
+    public double resolveNormHours() {
+        return operationNormHours != null ? operationNormHours : Double.parseDouble(operationNorm);
+    }
+}
@@ -0,0 +1,16 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+public class OccupancyTimelineDto {
+    private LocalDate date;
+    private int bucketMinutes;
+    private Map<String, Integer> headcount;
+    private Map<String, int[]> busyCounts; // Специализация -> занятые сотрудники по минутам дня, 1440 значений
+    private LocalDateTime indexBuiltAt;
+}
@@ -1,5 +1,6 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -14,9 +15,13 @@ public class OperationDto {
     private LocalDateTime stopTime;
     private EmployeeDto employee;
     private NormDto norm;
-    private String operationDuration;
-    private String optionsDuration;
-    private String totalDuration;
+    // Длительности в секундах, в JSON — HH:mm:ss
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long operationDuration;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long optionsDuration;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long totalDuration;
     private Double optionNorm;
     private Boolean isTimeExceedsNorm;
     private String category;
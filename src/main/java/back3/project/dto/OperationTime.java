@@ -1,9 +1,11 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 @Data
 public class OperationTime {
     private String operationType;
-    private String timeDifference;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long timeDifference; // секунды, отрицательное — перекрытие этапов
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Изменения /api/ppp между версиями снимка: изменившиеся и новые станки целиком, удалённые — номером
+@Data
+public class PppDeltaDto {
+    private long fromVersion;
+    private long toVersion;
+    private String etag;
+    private List<PppDto> changed;
+    private List<String> removed;
+}
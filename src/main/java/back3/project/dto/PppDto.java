@@ -1,5 +1,7 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 import java.time.LocalDate;
@@ -25,9 +27,14 @@ public class PppDto {
     private List<ForecastDateDto> forecastDatesStart;
     private LocalDate extendedTransportPositionDate; 
     private LocalDate extendedTransportPositionDatePlan;
-    private String totalDurationSum;// Change this line
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long totalDurationSum;
     private Double totalProblemsNormHours; 
     private Double completionPercentage;
-    private String positiveInterOperationTimeSum;
-    private String totalSum;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long positiveInterOperationTimeSum;
+    @JsonSerialize(using = DurationSecondsSerializer.class)
+    private Long totalSum;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error; // Ошибка расчёта станка; в остальных случаях поле не выводится
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package back3.project.dto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Набор полей PppDto, запрошенных через fields=. По нему PppService пропускает
+ * этапы расчёта, результаты которых клиенту не нужны.
+ */
+public final class PppFields {
+
+    public static final String TRANSACTION = "transaction";
+    public static final String ERROR = "error";
+    public static final String OPERATIONS = "operations";
+    public static final String OPERATION_TIMES = "operationTimes";
+    public static final String FORECAST_DATES_PLAN = "forecastDatesPlan";
+    public static final String FORECAST_DATES_START = "forecastDatesStart";
+    public static final String EXTENDED_TRANSPORT_POSITION_DATE = "extendedTransportPositionDate";
+    public static final String EXTENDED_TRANSPORT_POSITION_DATE_PLAN = "extendedTransportPositionDatePlan";
+    public static final String TOTAL_DURATION_SUM = "totalDurationSum";
+    public static final String TOTAL_PROBLEMS_NORM_HOURS = "totalProblemsNormHours";
+    public static final String COMPLETION_PERCENTAGE = "completionPercentage";
+    public static final String POSITIVE_INTER_OPERATION_TIME_SUM = "positiveInterOperationTimeSum";
+    public static final String TOTAL_SUM = "totalSum";
+
+    // Все поля PppDto, которые можно запросить
+    public static final Set<String> NAMES = Set.of(
+            TRANSACTION, "status", "planPpp",
+            "planDateStart", "forecastDateStart", "factDateStart",
+            "planDateStop", "forecastDateStop", "factDateStop",
+            "planDateShipment", "forecastDateShipment", "factDateShipment",
+            OPERATIONS, OPERATION_TIMES, FORECAST_DATES_PLAN, FORECAST_DATES_START,
+            EXTENDED_TRANSPORT_POSITION_DATE, EXTENDED_TRANSPORT_POSITION_DATE_PLAN,
+            TOTAL_DURATION_SUM, TOTAL_PROBLEMS_NORM_HOURS, COMPLETION_PERCENTAGE,
+            POSITIVE_INTER_OPERATION_TIME_SUM, TOTAL_SUM, ERROR);
+
+    public static final PppFields ALL = new PppFields(null);
+
+    private final Set<String> requested; // null — все поля
+
+    private PppFields(Set<String> requested) {
+        this.requested = requested;
+    }
+
+    // "status,completionPercentage,totalSum" -> набор полей; transaction и error выводятся всегда
+    public static PppFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add(TRANSACTION);
+        requested.add(ERROR);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + ", expected one of " + NAMES);
+            }
+            requested.add(name);
+        }
+        return new PppFields(Collections.unmodifiableSet(requested));
+    }
+
+    public boolean isAll() {
+        return requested == null;
+    }
+
+    public Set<String> getRequested() {
+        return requested;
+    }
+
+    public boolean includes(String name) {
+        return requested == null || requested.contains(name);
+    }
+
+    private boolean includesAny(String... names) {
+        return requested == null || Arrays.stream(names).anyMatch(requested::contains);
+    }
+
+    // Межоперационное время нужно для operationTimes и для сумм, в которые оно входит
+    public boolean needsOperationTimes() {
+        return includesAny(OPERATION_TIMES, POSITIVE_INTER_OPERATION_TIME_SUM, TOTAL_SUM);
+    }
+
+    public boolean needsForecastPlan() {
+        return includesAny(FORECAST_DATES_PLAN, EXTENDED_TRANSPORT_POSITION_DATE_PLAN);
+    }
+
+    public boolean needsForecastStart() {
+        return includesAny(FORECAST_DATES_START, EXTENDED_TRANSPORT_POSITION_DATE);
+    }
+
+    // Агрегация операций нужна всем расчётным полям; для полей plan_ppp её можно пропустить
+    public boolean needsOperations() {
+        return includesAny(OPERATIONS, TOTAL_DURATION_SUM, TOTAL_PROBLEMS_NORM_HOURS, COMPLETION_PERCENTAGE)
+                || needsOperationTimes() || needsForecastPlan() || needsForecastStart();
+    }
+
+    @Override
+    public String toString() {
+        return requested == null ? "ALL" : String.join(",", requested);
+    }
+}
@@ -0,0 +1,33 @@
+package back3.project.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Параметры отбора и постраничного вывода для GET /api/ppp
+@Data
+public class PppFilter {
+    private String status;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate planDateFrom;      // Date_start_PPP_Plan >= planDateFrom
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate planDateTo;        // Date_start_PPP_Plan <= planDateTo
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate factDateFrom;      // Date_start_PPP_Fact >= factDateFrom
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate factDateTo;        // Date_start_PPP_Fact <= factDateTo
+    private String transactionPrefix;
+    private Integer page;
+    private Integer size;
+
+    public boolean isEmpty() {
+        return status == null && planDateFrom == null && planDateTo == null
+                && factDateFrom == null && factDateTo == null
+                && transactionPrefix == null && page == null && size == null;
+    }
+
+    public boolean isPaged() {
+        return page != null || size != null;
+    }
+}
@@ -1,9 +1,12 @@
 package back3.project.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.List;
 
 @Data
 public class PppListDto {
     private List<PppDto> ppps;
+    @JsonIgnore
+    private Long totalCount; // Уходит в заголовок X-Total-Count, тело ответа не меняется
 }
\ No newline at end of file
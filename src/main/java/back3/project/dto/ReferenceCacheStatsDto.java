@@ -0,0 +1,15 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ReferenceCacheStatsDto {
+    private int normsCount;
+    private int employeesCount;
+    private Instant loadedAt;
+    private long found;       // обращения к справочникам, ключ найден
+    private long notFound;    // ключа нет в справочнике (данные загружены целиком, это не промах кэша)
+    private long refreshes;
+}
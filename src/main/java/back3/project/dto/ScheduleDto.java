@@ -0,0 +1,15 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ScheduleDto {
+    private LocalDateTime generatedAt;
+    private Map<String, Integer> headcount;
+    private List<MachineScheduleDto> machines;
+    private long computeMillis;
+}
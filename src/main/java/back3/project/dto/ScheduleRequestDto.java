@@ -0,0 +1,13 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// What-if: другие даты начала станков и/или численность по специализациям
+@Data
+public class ScheduleRequestDto {
+    private Map<String, LocalDate> startDates;
+    private Map<String, Integer> headcount;
+}
@@ -0,0 +1,14 @@
+package back3.project.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ScheduledStageDto {
+    private String operationType;
+    private String specialization;
+    private Double remainingNormHours;  // 0 — этап уже выполнен
+    private LocalDateTime start;        // null для выполненного или не распланированного этапа
+    private LocalDateTime end;
+}
@@ -0,0 +1,18 @@
+package back3.project.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Строка work_report_ppp без управляемой сущности: только поля, нужные для расчёта
+@Getter
+@AllArgsConstructor
+public class OperationRow {
+    private final Long operationId;
+    private final String transaction;
+    private final String operationType;
+    private final LocalDateTime startTime;
+    private final LocalDateTime stopTime;
+    private final Long employeesId;
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,8 +19,55 @@ public interface PppOperationRepository extends JpaRepository<PppOperation, Long
 
     List<PppOperation> findByEmployeesIdIsNotNull();
 
+    String OPERATION_ROW = "SELECT new back3.project.repository.OperationRow(po.operationId, po.transaction, " +
+            "po.operationType, po.startTime, po.stopTime, po.employeesId) FROM PppOperation po ";
+
+    @Query(OPERATION_ROW + "WHERE po.employeesId IS NOT NULL ORDER BY po.operationId")
+    List<OperationRow> findRowsWithEmployee();
+
+    @Query(OPERATION_ROW + "WHERE po.transaction IN :transactions AND po.employeesId IS NOT NULL ORDER BY po.operationId")
+    List<OperationRow> findRowsWithEmployeeByTransactionIn(@Param("transactions") Collection<String> transactions);
+
+    // Один запрос на все этапы: границы этапа, открытые операции и сотрудник первой операции (min(id))
+    String STAGE_AGGREGATE = "SELECT new back3.project.repository.StageAggregate(stage.transaction, stage.operationType, " +
+            "stage.firstOperationId, first.employeesId, stage.startTime, stage.stopTime, stage.openCount) " +
+            "FROM (SELECT po.transaction AS transaction, po.operationType AS operationType, MIN(po.operationId) AS firstOperationId, " +
+            "MIN(po.startTime) AS startTime, MAX(po.stopTime) AS stopTime, " +
+            "SUM(CASE WHEN po.startTime IS NOT NULL AND po.stopTime IS NULL THEN 1 ELSE 0 END) AS openCount " +
+            "FROM PppOperation po WHERE po.employeesId IS NOT NULL AND po.transaction IS NOT NULL AND po.operationType IS NOT NULL ";
+    String STAGE_AGGREGATE_END = "GROUP BY po.transaction, po.operationType) stage " +
+            "JOIN PppOperation first ON first.operationId = stage.firstOperationId";
+
+    @Query(STAGE_AGGREGATE + STAGE_AGGREGATE_END)
+    List<StageAggregate> aggregateStages();
+
+    @Query(STAGE_AGGREGATE + "AND po.transaction IN :transactions " + STAGE_AGGREGATE_END)
+    List<StageAggregate> aggregateStagesByTransactionIn(@Param("transactions") Collection<String> transactions);
+
+    // Станки, у которых хотя бы один этап (группа transaction + stage_ppp) начат в [from, to):
+    // начало этапа — самое раннее start_work его операций
+    @Query("SELECT po.transaction FROM PppOperation po WHERE po.employeesId IS NOT NULL AND po.transaction IS NOT NULL " +
+            "AND po.operationType IN :stages GROUP BY po.transaction, po.operationType " +
+            "HAVING MIN(po.startTime) >= :from AND MIN(po.startTime) < :to")
+    List<String> findTransactionsWithStageStartedBetween(@Param("stages") Collection<String> stages,
+                                                         @Param("from") LocalDateTime from,
+                                                         @Param("to") LocalDateTime to);
+
     List<PppOperation> findByEmployeesIdAndStartTimeBeforeAndStopTimeAfter(Long employeesId, LocalDateTime endTime, LocalDateTime startTime);
 
+    // Сотрудники, у которых на момент instant есть начатая и не законченная операция (stop_work IS NULL тоже считается)
+    @Query("SELECT DISTINCT po.employeesId FROM PppOperation po WHERE po.employeesId IS NOT NULL " +
+            "AND po.startTime < :instant AND (po.stopTime IS NULL OR po.stopTime > :instant)")
+    List<Long> findBusyEmployeeIds(@Param("instant") LocalDateTime instant);
+
     List<PppOperation> findByTransactionAndEmployeesIdIsNotNullAndOperationType(String transaction,
             String operationType);
-}
\ No newline at end of file
+
+    // md5 от всех строк станка по порядку id: меняется при любой правке этапа, сотрудника или времени
+    @Query(value = "SELECT transaction AS \"transaction\", COUNT(*) AS \"rowCount\", " +
+            "MD5(STRING_AGG(CAST(id AS VARCHAR) || '|' || COALESCE(stage_ppp, '') || '|' " +
+            "|| COALESCE(CAST(employee AS VARCHAR), '') || '|' || COALESCE(CAST(start_work AS VARCHAR), '') " +
+            "|| '|' || COALESCE(CAST(stop_work AS VARCHAR), ''), ';' ORDER BY id)) AS \"contentHash\" " +
+            "FROM work_report_ppp WHERE transaction IS NOT NULL GROUP BY transaction", nativeQuery = true)
+    List<TransactionFingerprint> fingerprintByTransaction();
+}
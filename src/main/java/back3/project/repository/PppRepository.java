@@ -2,6 +2,10 @@ package back3.project.repository;
 
 import back3.project.entity.Ppp;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
-public interface PppRepository extends JpaRepository<Ppp, String> {
+import java.util.List;
+
+public interface PppRepository extends JpaRepository<Ppp, String>, JpaSpecificationExecutor<Ppp> {
+    List<Ppp> findByStatus(String status);
 }
\ No newline at end of file
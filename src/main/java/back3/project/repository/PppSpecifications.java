@@ -0,0 +1,45 @@
+package back3.project.repository;
+
+import back3.project.dto.PppFilter;
+import back3.project.entity.Ppp;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PppSpecifications {
+
+    private PppSpecifications() {
+    }
+
+    // Условия отбора plan_ppp по фильтру; пустые параметры не участвуют
+    public static Specification<Ppp> byFilter(PppFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getPlanDateFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("planDateStart"), filter.getPlanDateFrom()));
+            }
+            if (filter.getPlanDateTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("planDateStart"), filter.getPlanDateTo()));
+            }
+            if (filter.getFactDateFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("factDateStart"), filter.getFactDateFrom()));
+            }
+            if (filter.getFactDateTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("factDateStart"), filter.getFactDateTo()));
+            }
+            if (filter.getTransactionPrefix() != null && !filter.getTransactionPrefix().isEmpty()) {
+                predicates.add(cb.like(root.get("transaction"), escapeLike(filter.getTransactionPrefix()) + "%", '\\'));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
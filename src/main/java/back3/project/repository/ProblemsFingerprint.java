@@ -0,0 +1,10 @@
+package back3.project.repository;
+
+// Отпечаток строк faults станка для обнаружения изменений
+public interface ProblemsFingerprint {
+    String getTransaction();
+
+    Long getRowCount();
+
+    String getContentHash();
+}
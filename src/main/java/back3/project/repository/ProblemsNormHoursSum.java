@@ -0,0 +1,10 @@
+package back3.project.repository;
+
+// Сумма norm_hours из faults по станку и сотруднику
+public interface ProblemsNormHoursSum {
+    String getTransaction();
+
+    Long getIdEmployee();
+
+    Long getNormHours();
+}
@@ -2,8 +2,29 @@ package back3.project.repository;
 
 import back3.project.entity.Problems;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface ProblemsRepository extends JpaRepository<Problems, Long> {
     List<Problems> findByTransactionAndIdEmployee(String transaction, Long employeeId);
-}
\ No newline at end of file
+
+    @Query("SELECT p.transaction AS transaction, p.idEmployee AS idEmployee, SUM(p.normHours) AS normHours " +
+            "FROM Problems p WHERE p.transaction IS NOT NULL AND p.idEmployee IS NOT NULL " +
+            "GROUP BY p.transaction, p.idEmployee")
+    List<ProblemsNormHoursSum> sumNormHoursByTransactionAndEmployee();
+
+    @Query("SELECT p.transaction AS transaction, p.idEmployee AS idEmployee, SUM(p.normHours) AS normHours " +
+            "FROM Problems p WHERE p.transaction IN :transactions AND p.idEmployee IS NOT NULL " +
+            "GROUP BY p.transaction, p.idEmployee")
+    List<ProblemsNormHoursSum> sumNormHoursByTransactionInAndEmployee(@Param("transactions") Collection<String> transactions);
+
+    @Query(value = "SELECT transaction AS \"transaction\", COUNT(*) AS \"rowCount\", " +
+            "MD5(STRING_AGG(CAST(id AS VARCHAR) || '|' || COALESCE(CAST(id_employee AS VARCHAR), '') || '|' " +
+            "|| COALESCE(CAST(norm_hours AS VARCHAR), '') || '|' || COALESCE(unit, '') || '|' || COALESCE(description, ''), " +
+            "';' ORDER BY id)) AS \"contentHash\" " +
+            "FROM faults WHERE transaction IS NOT NULL GROUP BY transaction", nativeQuery = true)
+    List<ProblemsFingerprint> fingerprintByTransaction();
+}
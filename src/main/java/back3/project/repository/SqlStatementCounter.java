@@ -0,0 +1,39 @@
+package back3.project.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы Hibernate и загруженные строки в текущем потоке. Подключается через
+ * hibernate.session_factory.statement_inspector; счётчики сбрасываются в начале HTTP-запроса.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    // {запросы, строки}
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNTS.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        long[] counts = COUNTS.get();
+        counts[0] = 0;
+        counts[1] = 0;
+    }
+
+    public static void addRows(long rows) {
+        COUNTS.get()[1] += rows;
+    }
+
+    public static long getStatements() {
+        return COUNTS.get()[0];
+    }
+
+    public static long getRows() {
+        return COUNTS.get()[1];
+    }
+}
@@ -0,0 +1,23 @@
+package back3.project.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Агрегаты этапа (transaction + stage_ppp), посчитанные в базе
+@Getter
+@AllArgsConstructor
+public class StageAggregate {
+    private final String transaction;
+    private final String operationType;
+    private final Long firstOperationId;   // min(id): этой операцией этап представлен в ответе
+    private final Long employeesId;        // сотрудник первой операции этапа
+    private final LocalDateTime startTime; // min(start_work)
+    private final LocalDateTime stopTime;  // max(stop_work)
+    private final Long openCount;          // начатые и не законченные операции
+
+    public boolean hasOpenOperations() {
+        return openCount != null && openCount > 0;
+    }
+}
@@ -0,0 +1,10 @@
+package back3.project.repository;
+
+// Отпечаток строк work_report_ppp станка: меняется при добавлении, закрытии или правке отчёта
+public interface TransactionFingerprint {
+    String getTransaction();
+
+    Long getRowCount();
+
+    String getContentHash();
+}
@@ -0,0 +1,218 @@
+package back3.project.service;
+
+import back3.project.repository.OperationRow;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый индекс занятости сотрудников по work_report_ppp. Для каждого сотрудника —
+ * отсортированные непересекающиеся интервалы занятости (перекрывающиеся операции слиты)
+ * и префиксные суммы их длительностей. Занятость в момент T — двоичный поиск,
+ * занятость за период — две границы и разность префиксных сумм.
+ * Как и findBusyEmployeeIds: занят, если start_work < T и (stop_work IS NULL или stop_work > T).
+ */
+public class EmployeeOccupancyIndex {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long OPEN = Long.MAX_VALUE; // незакрытая операция
+
+    private final Map<Long, Intervals> intervalsByEmployee;
+    private final LocalDateTime builtAt;
+
+    private EmployeeOccupancyIndex(Map<Long, Intervals> intervalsByEmployee, LocalDateTime builtAt) {
+        this.intervalsByEmployee = intervalsByEmployee;
+        this.builtAt = builtAt;
+    }
+
+    // Интервалы одного сотрудника в секундах: starts/ends отсортированы, busyBefore[k] — сумма длительностей 0..k-1
+    private record Intervals(long[] starts, long[] ends, long[] busyBefore) {
+
+        // Последний интервал, начатый строго раньше t; -1 — таких нет. Начала строго возрастают
+        int lastStartedBefore(long t) {
+            int index = Arrays.binarySearch(starts, t);
+            return index < 0 ? -index - 2 : index - 1;
+        }
+
+        boolean isBusyAt(long t) {
+            int index = lastStartedBefore(t);
+            return index >= 0 && ends[index] > t;
+        }
+
+        long busySecondsBetween(long from, long to) {
+            if (from >= to) {
+                return 0;
+            }
+            // first — первый интервал, закончившийся позже from; last — последний, начатый раньше to
+            int first = firstEndingAfter(from);
+            int last = lastStartedBefore(to);
+            if (first > last) {
+                return 0;
+            }
+            if (first == last) {
+                return Math.min(ends[first], to) - Math.max(starts[first], from);
+            }
+            // Все интервалы до last закрыты: незакрытым может быть только последний
+            return (ends[first] - Math.max(starts[first], from))
+                    + (busyBefore[last] - busyBefore[first + 1])
+                    + (Math.min(ends[last], to) - starts[last]);
+        }
+
+        private int firstEndingAfter(long t) {
+            int low = 0;
+            int high = ends.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] > t) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    public static EmployeeOccupancyIndex build(Collection<OperationRow> rows, LocalDateTime builtAt) {
+        Map<Long, List<long[]>> rawByEmployee = new HashMap<>();
+        for (OperationRow row : rows) {
+            if (row.getEmployeesId() == null || row.getStartTime() == null) {
+                continue;
+            }
+            long start = toSeconds(row.getStartTime());
+            long end = row.getStopTime() != null ? toSeconds(row.getStopTime()) : OPEN;
+            if (end <= start) {
+                continue; // Нулевая длительность или окончание раньше начала: занятым ни в какой момент не был
+            }
+            rawByEmployee.computeIfAbsent(row.getEmployeesId(), id -> new ArrayList<>()).add(new long[]{start, end});
+        }
+
+        Map<Long, Intervals> intervalsByEmployee = new HashMap<>();
+        rawByEmployee.forEach((employeeId, raw) -> intervalsByEmployee.put(employeeId, merge(raw)));
+        return new EmployeeOccupancyIndex(intervalsByEmployee, builtAt);
+    }
+
+    // Сливаем только пересекающиеся интервалы: в точке стыка сотрудник свободен
+    private static Intervals merge(List<long[]> raw) {
+        raw.sort(Comparator.comparingLong(interval -> interval[0]));
+        long[] starts = new long[raw.size()];
+        long[] ends = new long[raw.size()];
+        int count = 0;
+        for (long[] interval : raw) {
+            if (count > 0 && interval[0] < ends[count - 1]) {
+                ends[count - 1] = Math.max(ends[count - 1], interval[1]);
+            } else {
+                starts[count] = interval[0];
+                ends[count] = interval[1];
+                count++;
+            }
+        }
+        starts = Arrays.copyOf(starts, count);
+        ends = Arrays.copyOf(ends, count);
+        long[] busyBefore = new long[count];
+        for (int k = 1; k < count; k++) {
+            busyBefore[k] = busyBefore[k - 1] + (ends[k - 1] - starts[k - 1]);
+        }
+        return new Intervals(starts, ends, busyBefore);
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    public boolean isBusyAt(long employeeId, LocalDateTime instant) {
+        Intervals intervals = intervalsByEmployee.get(employeeId);
+        return intervals != null && intervals.isBusyAt(toSeconds(instant));
+    }
+
+    // Сотрудники, занятые в момент instant
+    public List<Long> findBusyAt(LocalDateTime instant) {
+        long t = toSeconds(instant);
+        List<Long> busy = new ArrayList<>();
+        intervalsByEmployee.forEach((employeeId, intervals) -> {
+            if (intervals.isBusyAt(t)) {
+                busy.add(employeeId);
+            }
+        });
+        return busy;
+    }
+
+    // Занятое время сотрудника в [from, to), секунды
+    public long busySecondsBetween(long employeeId, LocalDateTime from, LocalDateTime to) {
+        Intervals intervals = intervalsByEmployee.get(employeeId);
+        return intervals != null ? intervals.busySecondsBetween(toSeconds(from), toSeconds(to)) : 0;
+    }
+
+    // Интервалы занятости сотрудника, обрезанные по [from, to): {начало, конец}
+    public List<LocalDateTime[]> busyIntervalsBetween(long employeeId, LocalDateTime from, LocalDateTime to) {
+        Intervals intervals = intervalsByEmployee.get(employeeId);
+        List<LocalDateTime[]> result = new ArrayList<>();
+        if (intervals == null) {
+            return result;
+        }
+        long fromSeconds = toSeconds(from);
+        long toSeconds = toSeconds(to);
+        int last = intervals.lastStartedBefore(toSeconds);
+        for (int k = intervals.firstEndingAfter(fromSeconds); k <= last; k++) {
+            result.add(new LocalDateTime[]{
+                    fromSeconds(Math.max(intervals.starts()[k], fromSeconds)),
+                    fromSeconds(Math.min(intervals.ends()[k], toSeconds))});
+        }
+        return result;
+    }
+
+    /**
+     * Число занятых сотрудников по минутам дня: bucket m — момент date 00:00 + m минут.
+     * Каждый интервал отмечается разностным массивом, затем один проход префиксной суммой.
+     */
+    public int[] busyCountsByMinute(Collection<Long> employeeIds, LocalDate date) {
+        long dayStart = toSeconds(date.atStartOfDay());
+        int[] diff = new int[MINUTES_PER_DAY + 1];
+        for (Long employeeId : employeeIds) {
+            Intervals intervals = intervalsByEmployee.get(employeeId);
+            if (intervals == null) {
+                continue;
+            }
+            long dayEnd = dayStart + MINUTES_PER_DAY * 60L;
+            int last = intervals.lastStartedBefore(dayEnd);
+            for (int k = intervals.firstEndingAfter(dayStart); k <= last; k++) {
+                // Минуты m со start < dayStart + 60m < end
+                long firstMinute = Math.max(0, Math.floorDiv(intervals.starts()[k] - dayStart, 60) + 1);
+                long lastMinute = intervals.ends()[k] == OPEN
+                        ? MINUTES_PER_DAY - 1
+                        : Math.min(MINUTES_PER_DAY - 1, Math.floorDiv(intervals.ends()[k] - dayStart + 59, 60) - 1);
+                if (firstMinute <= lastMinute) {
+                    diff[(int) firstMinute]++;
+                    diff[(int) lastMinute + 1]--;
+                }
+            }
+        }
+        int[] counts = new int[MINUTES_PER_DAY];
+        int running = 0;
+        for (int m = 0; m < MINUTES_PER_DAY; m++) {
+            running += diff[m];
+            counts[m] = running;
+        }
+        return counts;
+    }
+
+    public int getEmployeesCount() {
+        return intervalsByEmployee.size();
+    }
+
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromSeconds(long seconds) {
+        return seconds == OPEN ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+}
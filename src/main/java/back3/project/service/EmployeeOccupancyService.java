@@ -0,0 +1,142 @@
+package back3.project.service;
+
+import back3.project.dto.BusyIntervalDto;
+import back3.project.dto.EmployeeDto;
+import back3.project.dto.EmployeeOccupancyDto;
+import back3.project.dto.OccupancyTimelineDto;
+import back3.project.entity.PppEmployees;
+import back3.project.repository.OperationRow;
+import back3.project.repository.PppOperationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Занятость сотрудников в любой момент истории по EmployeeOccupancyIndex.
+ * Индекс строится по всем строкам work_report_ppp и пересобирается в фоне
+ * раз в ppp.occupancy.refresh-interval; запросы к базе на каждый вопрос не нужны.
+ */
+@Service
+@RequiredArgsConstructor
+public class EmployeeOccupancyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeOccupancyService.class);
+
+    private final PppOperationRepository pppOperationRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final PppConversionService pppConversionService;
+
+    private volatile EmployeeOccupancyIndex index;
+
+    @Scheduled(initialDelayString = "${ppp.occupancy.initial-delay:PT0S}", fixedDelayString = "${ppp.occupancy.refresh-interval:PT1M}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Оставляем предыдущий индекс, следующий запуск попробует снова
+            logger.error("Failed to rebuild employee occupancy index", e);
+        }
+    }
+
+    public synchronized EmployeeOccupancyIndex refresh() {
+        long startedAt = System.nanoTime();
+        List<OperationRow> rows = pppOperationRepository.findRowsWithEmployee();
+        EmployeeOccupancyIndex rebuilt = EmployeeOccupancyIndex.build(rows, LocalDateTime.now());
+        index = rebuilt;
+        logger.info("Employee occupancy index built from {} rows for {} employees in {} ms",
+                rows.size(), rebuilt.getEmployeesCount(), (System.nanoTime() - startedAt) / 1_000_000);
+        return rebuilt;
+    }
+
+    public EmployeeOccupancyIndex getIndex() {
+        EmployeeOccupancyIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = refresh();
+                }
+            }
+        }
+        return current;
+    }
+
+    // Кто был занят в момент instant
+    public List<EmployeeDto> findBusyEmployees(LocalDateTime instant) {
+        ReferenceData referenceData = referenceDataCache.get();
+        List<EmployeeDto> busy = new ArrayList<>();
+        for (Long employeeId : getIndex().findBusyAt(instant)) {
+            referenceData.findEmployee(employeeId)
+                    .map(pppConversionService::convertToEmployeeDto)
+                    .ifPresent(busy::add);
+        }
+        return busy;
+    }
+
+    // Занятость сотрудника в [from, to); пусто, если сотрудника нет в справочнике
+    public Optional<EmployeeOccupancyDto> getOccupancy(Long employeeId, LocalDateTime from, LocalDateTime to) {
+        Optional<PppEmployees> employee = referenceDataCache.get().findEmployee(employeeId);
+        if (employee.isEmpty()) {
+            return Optional.empty();
+        }
+        EmployeeOccupancyIndex currentIndex = getIndex();
+        long busySeconds = currentIndex.busySecondsBetween(employeeId, from, to);
+        long periodSeconds = Duration.between(from, to).getSeconds();
+
+        List<BusyIntervalDto> intervals = new ArrayList<>();
+        for (LocalDateTime[] interval : currentIndex.busyIntervalsBetween(employeeId, from, to)) {
+            BusyIntervalDto intervalDto = new BusyIntervalDto();
+            intervalDto.setStart(interval[0]);
+            intervalDto.setStop(interval[1]);
+            intervals.add(intervalDto);
+        }
+
+        EmployeeOccupancyDto occupancyDto = new EmployeeOccupancyDto();
+        occupancyDto.setEmployee(pppConversionService.convertToEmployeeDto(employee.get()));
+        occupancyDto.setFrom(from);
+        occupancyDto.setTo(to);
+        occupancyDto.setBusyTime(busySeconds);
+        occupancyDto.setOccupancy(periodSeconds > 0 ? (double) busySeconds / periodSeconds : 0.0);
+        occupancyDto.setIntervals(intervals);
+        return Optional.of(occupancyDto);
+    }
+
+    // Занятые сотрудники по специализациям для каждой минуты дня
+    public OccupancyTimelineDto getTimeline(LocalDate date) {
+        Map<String, List<Long>> employeeIdsBySpecialization = new LinkedHashMap<>();
+        for (PppEmployees employee : referenceDataCache.get().getEmployees()) {
+            if (employee.getEmployeesSpecialization() != null) {
+                employeeIdsBySpecialization
+                        .computeIfAbsent(employee.getEmployeesSpecialization(), key -> new ArrayList<>())
+                        .add(employee.getEmployeesId());
+            }
+        }
+
+        EmployeeOccupancyIndex currentIndex = getIndex();
+        Map<String, Integer> headcount = new LinkedHashMap<>();
+        Map<String, int[]> busyCounts = new LinkedHashMap<>();
+        employeeIdsBySpecialization.forEach((specialization, employeeIds) -> {
+            headcount.put(specialization, employeeIds.size());
+            busyCounts.put(specialization, currentIndex.busyCountsByMinute(employeeIds, date));
+        });
+
+        OccupancyTimelineDto timeline = new OccupancyTimelineDto();
+        timeline.setDate(date);
+        timeline.setBucketMinutes(1);
+        timeline.setHeadcount(headcount);
+        timeline.setBusyCounts(busyCounts);
+        timeline.setIndexBuiltAt(currentIndex.getBuiltAt());
+        return timeline;
+    }
+}
@@ -0,0 +1,183 @@
+package back3.project.service;
+
+import back3.project.dto.OperationDto;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Месячные суммы показателей сотрудников: (сотрудник, год, месяц) -> PerformanceTotals.
+ * Этап относится к месяцу своего начала (самое раннее start_work). При обновлении
+ * пересчитываются только станки, у которых изменились отпечатки work_report_ppp или faults;
+ * их прежний вклад вычитается, новый прибавляется. Каждое fullRefreshEvery-е обновление
+ * пересобирает суммы целиком. Запросы за месяц и год суммируют готовые месячные строки.
+ */
+@Service
+@RequiredArgsConstructor
+public class EmployeePerformanceRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeePerformanceRollupService.class);
+
+    private final TransactionFingerprintService transactionFingerprintService;
+    private final ReferenceDataCache referenceDataCache;
+    private final PppDataSnapshotService pppDataSnapshotService;
+    private final OperationService operationService;
+
+    @Value("${ppp.performance-rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ppp.performance-rollup.full-refresh-every:12}")
+    private int fullRefreshEvery;
+
+    // Опубликованные суммы; при обновлении заменяются целиком, читатели не блокируются
+    private volatile Map<RollupKey, PerformanceTotals> rollups;
+
+    // Состояние последнего обновления, меняется только внутри refresh()
+    private final Map<String, Map<RollupKey, PerformanceTotals>> contributionsByTransaction = new HashMap<>();
+    private TransactionFingerprints fingerprints = TransactionFingerprints.EMPTY;
+    private ReferenceData referenceData;
+    private int refreshesSinceFull;
+
+    // Этапы без даты начала попадают только в суммы за весь период
+    private record RollupKey(long employeeId, int year, int month) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(initialDelayString = "${ppp.performance-rollup.initial-delay:PT0S}",
+            fixedDelayString = "${ppp.performance-rollup.refresh-interval:PT5M}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Оставляем прежние суммы, следующий запуск попробует снова
+            logger.error("Failed to refresh employee performance rollups", e);
+        }
+    }
+
+    /**
+     * Суммы по сотрудникам за месяц года, за год (month == null) или за весь период (year == null).
+     */
+    public Map<Long, PerformanceTotals> getTotals(Integer month, Integer year) {
+        Map<RollupKey, PerformanceTotals> current = rollups;
+        if (current == null) {
+            synchronized (this) {
+                if (rollups == null) {
+                    refresh();
+                }
+                current = rollups;
+            }
+        }
+
+        Map<Long, PerformanceTotals> totalsByEmployee = new HashMap<>();
+        for (Map.Entry<RollupKey, PerformanceTotals> entry : current.entrySet()) {
+            RollupKey key = entry.getKey();
+            if (year != null && (key.year() != year || (month != null && key.month() != month))) {
+                continue;
+            }
+            totalsByEmployee.computeIfAbsent(key.employeeId(), id -> new PerformanceTotals()).add(entry.getValue());
+        }
+        return totalsByEmployee;
+    }
+
+    public synchronized void refresh() {
+        long startedAt = System.nanoTime();
+        // Отпечатки читаются раньше операций: правка между запросами лишь повторит пересчёт станка в следующий раз
+        TransactionFingerprints currentFingerprints = transactionFingerprintService.load();
+        ReferenceData currentReferenceData = referenceDataCache.get();
+
+        Map<RollupKey, PerformanceTotals> updated;
+        Set<String> changedTransactions;
+        try {
+            if (rollups == null || !currentReferenceData.hasSameContent(referenceData) || ++refreshesSinceFull >= fullRefreshEvery) {
+                // Первый расчёт, изменились нормы/сотрудники или плановая полная пересборка — пересчитываем все станки
+                contributionsByTransaction.clear();
+                updated = new HashMap<>();
+                changedTransactions = currentFingerprints.getTransactions();
+                refreshesSinceFull = 0;
+                applyContributions(operationService.getAggregatedOperationsByTransaction(pppDataSnapshotService.loadSnapshot()), updated);
+            } else {
+                changedTransactions = currentFingerprints.changedSince(fingerprints);
+                if (changedTransactions.isEmpty()) {
+                    logger.debug("Employee performance rollups are up to date");
+                    return;
+                }
+                updated = copyOf(rollups);
+                for (String transaction : changedTransactions) {
+                    Map<RollupKey, PerformanceTotals> previous = contributionsByTransaction.remove(transaction);
+                    if (previous != null) {
+                        previous.forEach((key, totals) -> subtract(updated, key, totals));
+                    }
+                }
+                applyContributions(operationService.getAggregatedOperationsByTransaction(
+                        pppDataSnapshotService.loadSnapshotForTransactions(changedTransactions)), updated);
+            }
+        } catch (RuntimeException e) {
+            // Вклады станков могли остаться наполовину обновлёнными — следующий запуск пересчитает всё
+            referenceData = null;
+            throw e;
+        }
+
+        rollups = updated;
+        fingerprints = currentFingerprints;
+        referenceData = currentReferenceData;
+        logger.info("Employee performance rollups: {} machines recomputed, {} rows, {} ms",
+                changedTransactions.size(), updated.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void applyContributions(Map<String, List<OperationDto>> operationsByTransaction, Map<RollupKey, PerformanceTotals> target) {
+        operationsByTransaction.forEach((transaction, operationDtos) -> {
+            Map<RollupKey, PerformanceTotals> contribution = new HashMap<>();
+            for (OperationDto operationDto : operationDtos) {
+                if (operationDto.getEmployee() == null || operationDto.getEmployee().getEmployeesId() == null) {
+                    continue;
+                }
+                contribution.computeIfAbsent(keyOf(operationDto), key -> new PerformanceTotals()).add(operationDto);
+            }
+            contributionsByTransaction.put(transaction, contribution);
+            contribution.forEach((key, totals) -> target.merge(key, new PerformanceTotals(totals), (existing, added) -> {
+                existing.add(added);
+                return existing;
+            }));
+        });
+    }
+
+    private static void subtract(Map<RollupKey, PerformanceTotals> target, RollupKey key, PerformanceTotals totals) {
+        PerformanceTotals existing = target.get(key);
+        if (existing == null) {
+            return;
+        }
+        existing.subtract(totals);
+        if (existing.isEmpty()) {
+            target.remove(key);
+        }
+    }
+
+    private static RollupKey keyOf(OperationDto operationDto) {
+        long employeeId = operationDto.getEmployee().getEmployeesId();
+        if (operationDto.getStartTime() == null) {
+            return new RollupKey(employeeId, 0, 0);
+        }
+        return new RollupKey(employeeId, operationDto.getStartTime().getYear(), operationDto.getStartTime().getMonthValue());
+    }
+
+    // Глубокая копия: опубликованные суммы не меняются после публикации
+    private static Map<RollupKey, PerformanceTotals> copyOf(Map<RollupKey, PerformanceTotals> source) {
+        Map<RollupKey, PerformanceTotals> copy = new HashMap<>(source.size() * 2);
+        source.forEach((key, totals) -> copy.put(key, new PerformanceTotals(totals)));
+        return copy;
+    }
+}
@@ -3,20 +3,18 @@ package back3.project.service;
 import back3.project.dto.EmployeePerformanceDto;
 import back3.project.dto.OperationDto;
 import back3.project.entity.PppEmployees;
-import back3.project.repository.PppEmployeesRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.text.NumberFormat;
-import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
 
 
 @Service
@@ -25,8 +23,10 @@ public class EmployeePerformanceService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmployeePerformanceService.class);
 
-    private final PppEmployeesRepository pppEmployeesRepository;
+    private final ReferenceDataCache referenceDataCache;
     private final OperationService operationService;
+    private final ProductionCalendar productionCalendar;
+    private final EmployeePerformanceRollupService employeePerformanceRollupService;
 
     private static final List<String> ALLOWED_SPECIALIZATIONS = Arrays.asList(
             "Механик",
@@ -41,103 +41,61 @@ public class EmployeePerformanceService {
         List<EmployeePerformanceDto> employeePerformanceDtos = new ArrayList<>();
 
         // 1. Получить список всех сотрудников
-        List<PppEmployees> employees = pppEmployeesRepository.findAll();
+        List<PppEmployees> employees = List.copyOf(referenceDataCache.get().getEmployees());
 
         // 2. Отфильтровать список сотрудников по специальности
         List<PppEmployees> filteredEmployees = employees.stream()
                 .filter(employee -> ALLOWED_SPECIALIZATIONS.contains(employee.getEmployeesSpecialization()))
                 .toList();
 
-        // 3. Получить все агрегированные операции (возможно, потребуется изменить OperationService)
-        List<OperationDto> allAggregatedOperations = operationService.getAllAggregatedOperations();
-
-        // Фильтруем операции по месяцу, если месяц указан
-        if (month != null && year != null) {
-            allAggregatedOperations = allAggregatedOperations.stream()
-                    .filter(operationDto -> operationDto.getStartTime() != null &&
-                                           operationDto.getStartTime().getMonthValue() == month &&
-                                           operationDto.getStartTime().getYear() == year)
-                    .toList();
-        } else if (year != null) {
-            allAggregatedOperations = allAggregatedOperations.stream()
-                    .filter(operationDto -> operationDto.getStartTime() != null &&
-                                           operationDto.getStartTime().getYear() == year)
-                    .toList();
+        // 3. Суммы по сотрудникам за период
+        Map<Long, PerformanceTotals> totalsByEmployee;
+        if (month != null && (month < 1 || month > 12)) {
+            totalsByEmployee = Map.of(); // Неверный месяц: операций за период нет
+        } else if (employeePerformanceRollupService.isEnabled()) {
+            // Готовые месячные суммы, обновляемые по изменившимся станкам
+            totalsByEmployee = employeePerformanceRollupService.getTotals(month, year);
         } else {
-            logger.info("Month and year are null, returning data for the whole period.");
+            totalsByEmployee = groupByEmployee(loadAggregatedOperations(month, year));
         }
+
+        long workingHoursFundInSeconds = getWorkingHoursFund(month, year);
         for (PppEmployees employee : filteredEmployees) {
-            // 4. Для каждого сотрудника:
             EmployeePerformanceDto employeePerformanceDto = new EmployeePerformanceDto();
             employeePerformanceDto.setEmployeeId(employee.getEmployeesId());
             employeePerformanceDto.setEmployeeName(employee.getEmployeesName());
             employeePerformanceDto.setEmployeeSpecialization(employee.getEmployeesSpecialization());
 
-            AtomicLong totalOperations = new AtomicLong(0);
-            AtomicLong onTimeOperations = new AtomicLong(0);
-            AtomicReference<Double> totalTimeSpentInSecondsRef = new AtomicReference<>(0.0); //  Время в секундах
-            AtomicReference<Double> totalNormInSeconds = new AtomicReference<>(0.0); //  Сумма operationNorm и optionNorm в секундах
-
-            // 5. Фильтруем операции, относящиеся к текущему сотруднику
-            allAggregatedOperations.stream()
-                    .filter(operationDto -> operationDto.getEmployee().getEmployeesId().equals(employee.getEmployeesId()))
-                    .forEach(operationDto -> {
-                        totalOperations.incrementAndGet();
-                        if (operationDto.getIsTimeExceedsNorm()) {
-                            onTimeOperations.incrementAndGet();
-                        }
-                        Double duration = convertTimeToSeconds(operationDto.getTotalDuration()); // Преобразуем строку в секунды
-                        totalTimeSpentInSecondsRef.updateAndGet(v -> v + (duration != null ? duration : 0)); //  Суммируем время
-
-                        // Суммируем operationNorm и optionNorm в секундах
-                        AtomicReference<Double> operationNormRef = new AtomicReference<>(0.0);
-                        try {
-                            NumberFormat nf = NumberFormat.getInstance(Locale.getDefault());
-                            operationNormRef.set(nf.parse(operationDto.getNorm().getOperationNorm()).doubleValue());
-                        } catch (ParseException e) {
-                            logger.warn("Не удалось преобразовать operationNorm в число для операции: {}", operationDto.getOperationId());
-                        }
-
-                        AtomicReference<Double> optionNormRef = new AtomicReference<>(0.0);
-                        optionNormRef.set(operationDto.getOptionNorm() != null ? operationDto.getOptionNorm() : 0.0);
-
-                        //Преобразуем в секунды, если они в часах
-                        operationNormRef.set(operationNormRef.get() * 3600);
-                        optionNormRef.set(optionNormRef.get() * 3600);
-
-                        totalNormInSeconds.updateAndGet(v -> v + operationNormRef.get() + optionNormRef.get());
-                    });
-
-            employeePerformanceDto.setTotalOperations(totalOperations.get());
-            employeePerformanceDto.setOnTimeOperations(onTimeOperations.get());
-            employeePerformanceDto.setTotalTimeSpent(convertSecondsToTime(totalTimeSpentInSecondsRef.get())); //  Преобразуем в HH:mm:ss
-            employeePerformanceDto.setTotalNorm(convertSecondsToTime(totalNormInSeconds.get())); // Преобразуем в HH:mm:ss в String
+            PerformanceTotals totals = totalsByEmployee.getOrDefault(employee.getEmployeesId(), PerformanceTotals.EMPTY);
+
+            employeePerformanceDto.setTotalOperations(totals.getTotalOperations());
+            employeePerformanceDto.setOnTimeOperations(totals.getOnTimeOperations());
+            // Целые секунды; в HH:mm:ss переводятся при сериализации
+            long totalTimeSpentInSeconds = totals.getTimeSpentSeconds();
+            employeePerformanceDto.setTotalTimeSpent(totalTimeSpentInSeconds);
+            employeePerformanceDto.setTotalNorm((long) totals.getNormSeconds());
 
             // Вычисляем процент выполнения нормы
             double normPercentage = 0.0;
-            if (totalNormInSeconds.get() > 0) {
-                normPercentage = (totalNormInSeconds.get() / totalTimeSpentInSecondsRef.get()) * 100;
+            if (totals.getNormSeconds() > 0) {
+                normPercentage = (totals.getNormSeconds() / totalTimeSpentInSeconds) * 100;
             }
             employeePerformanceDto.setNormPercentage(String.format("%.2f", normPercentage)); // Форматируем до 2 знаков после запятой
 
-            // 6. Вычислить процент операций, выполненных в срок
+            // Вычислить процент операций, выполненных в срок
             double onTimePercentage = 0.0;
-            if (totalOperations.get() > 0) {
-                onTimePercentage = (double) onTimeOperations.get() / totalOperations.get() * 100;
+            if (totals.getTotalOperations() > 0) {
+                onTimePercentage = (double) totals.getOnTimeOperations() / totals.getTotalOperations() * 100;
             }
             employeePerformanceDto.setOnTimePercentage(onTimePercentage);
 
-            employeePerformanceDto.setWorkingHoursFund(getWorkingHoursFundForMonth(month));
+            employeePerformanceDto.setWorkingHoursFund(workingHoursFundInSeconds);
 
             // Вычисляем использование фонда рабочего времени
-            Double workingHoursFundInSeconds = convertTimeToSeconds(employeePerformanceDto.getWorkingHoursFund());
-            Double totalTimeSpentInSeconds = convertTimeToSeconds(employeePerformanceDto.getTotalTimeSpent());
-
             double workingHoursFundUsage = 0.0;
-            if (workingHoursFundInSeconds != null && workingHoursFundInSeconds > 0 && totalTimeSpentInSeconds != null) {
-                workingHoursFundUsage = (double) Math.round((totalTimeSpentInSeconds / workingHoursFundInSeconds) * 100) / 100;
+            if (workingHoursFundInSeconds > 0) {
+                workingHoursFundUsage = (double) Math.round(((double) totalTimeSpentInSeconds / workingHoursFundInSeconds) * 100) / 100;
             }
-
             employeePerformanceDto.setWorkingHoursFundUsage(workingHoursFundUsage);
 
             employeePerformanceDtos.add(employeePerformanceDto);
@@ -147,49 +105,43 @@ public class EmployeePerformanceService {
         return employeePerformanceDtos;
     }
 
-    private Double convertTimeToSeconds(String time) {
-        String[] parts = time.split(":");
-        if (parts.length != 3) {
-            return 0.0; // Или выбросить исключение, если формат неправильный
+    // Без сводки: операции за период, отбор по дате начала этапа делает запрос к work_report_ppp
+    private List<OperationDto> loadAggregatedOperations(Integer month, Integer year) {
+        if (month != null && year != null) {
+            LocalDateTime from = LocalDate.of(year, month, 1).atStartOfDay();
+            return operationService.getAggregatedOperationsStartedBetween(from, from.plusMonths(1));
         }
-        try {
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            int seconds = Integer.parseInt(parts[2]);
-            return (double) (hours * 3600 + minutes * 60 + seconds);
-        } catch (NumberFormatException e) {
-            return 0.0; // Или выбросить исключение, если не удалось преобразовать
+        if (year != null) {
+            LocalDateTime from = LocalDate.of(year, 1, 1).atStartOfDay();
+            return operationService.getAggregatedOperationsStartedBetween(from, from.plusYears(1));
         }
+        logger.info("Month and year are null, returning data for the whole period.");
+        return operationService.getAllAggregatedOperations();
     }
 
-    private String convertSecondsToTime(Double totalSeconds) {
-        int hours = (int) (totalSeconds / 3600);
-        int minutes = (int) ((totalSeconds % 3600) / 60);
-        int seconds = (int) (totalSeconds % 60);
-        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    // Один проход по операциям с группировкой по сотруднику
+    private static Map<Long, PerformanceTotals> groupByEmployee(List<OperationDto> aggregatedOperations) {
+        Map<Long, PerformanceTotals> totalsByEmployee = new HashMap<>();
+        for (OperationDto operationDto : aggregatedOperations) {
+            if (operationDto.getEmployee() == null || operationDto.getEmployee().getEmployeesId() == null) {
+                continue;
+            }
+            totalsByEmployee
+                    .computeIfAbsent(operationDto.getEmployee().getEmployeesId(), id -> new PerformanceTotals())
+                    .add(operationDto);
+        }
+        return totalsByEmployee;
     }
 
-    private String getWorkingHoursFundForMonth(Integer month) {
+    // Фонд рабочего времени в секундах по производственному календарю; без года — текущий год
+    private long getWorkingHoursFund(Integer month, Integer year) {
+        int fundYear = year != null ? year : LocalDate.now().getYear();
         if (month == null) {
-            return String.format("%04d:00:00", 1984); // Если месяц не указан, возвращаем годовое значение
+            return productionCalendar.getWorkingHoursFund(fundYear); // Если месяц не указан, возвращаем годовое значение
         }
-
-        int hours;
-        switch (month) {
-            case 1:  hours = 136; break; // Январь
-            case 2:  hours = 152; break; // Февраль
-            case 3:  hours = 160; break; // Март
-            case 4:  hours = 176; break; // Апрель
-            case 5:  hours = 144; break; // Май
-            case 6:  hours = 168; break; // Июнь
-            case 7:  hours = 184; break; // Июль
-            case 8:  hours = 168; break; // Август
-            case 9:  hours = 176; break; // Сентябрь
-            case 10: hours = 184; break; // Октябрь
-            case 11: hours = 152; break; // Ноябрь
-            case 12: hours = 184; break; // Декабрь
-            default: hours = 0; // Если месяц не указан или указан неверно
+        if (month < 1 || month > 12) {
+            return 0; // Если месяц указан неверно
         }
-        return String.format("%02d:00:00", hours); // Форматируем в HH:mm:ss
+        return productionCalendar.getWorkingHoursFund(fundYear, month);
     }
-}
\ No newline at end of file
+}
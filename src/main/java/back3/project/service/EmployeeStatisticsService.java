@@ -1,8 +1,6 @@
 package back3.project.service;
 
 import back3.project.dto.EmployeeStatisticsDto;
-import back3.project.dto.PppDto;
-import back3.project.dto.PppListDto;
 import back3.project.entity.PppEmployees;
 import back3.project.repository.PppEmployeesRepository;
 import lombok.RequiredArgsConstructor;
@@ -11,10 +9,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.time.Duration;
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +21,7 @@ public class EmployeeStatisticsService {
     private final PppEmployeesRepository pppEmployeesRepository;
     private final OperationService operationService;
     private final PppService pppService;
+    private final PipelineMetrics pipelineMetrics;
     private final Logger logger = LoggerFactory.getLogger(EmployeeStatisticsService.class);
 
     private static final List<String> ALLOWED_SPECIALIZATIONS = List.of(
@@ -35,86 +34,55 @@ public class EmployeeStatisticsService {
 
     public EmployeeStatisticsDto getEmployeeStatistics() {
         logger.info("getEmployeeStatistics() called");
-        Instant start = Instant.now();
+        long startedAt = System.nanoTime();
 
-        List<PppEmployees> filteredEmployees = pppEmployeesRepository.findByEmployeesSpecializationIn(ALLOWED_SPECIALIZATIONS);
-        Instant afterGetEmployees = Instant.now();
-        logger.info("Time to get employees: " + Duration.between(start, afterGetEmployees).toMillis() + "ms");
+        // Время этапов пишется в ppp.pipeline: выборки здесь, расчёт станков — внутри PppService
+        List<PppEmployees> filteredEmployees = pipelineMetrics.time(PipelineMetrics.DB_FETCH,
+                () -> pppEmployeesRepository.findByEmployeesSpecializationIn(ALLOWED_SPECIALIZATIONS));
 
         if (filteredEmployees == null || filteredEmployees.isEmpty()) {
             logger.warn("No employees found in the database.");
             return new EmployeeStatisticsDto();
         }
 
-        long mechanicCount = filteredEmployees.stream()
-                .filter(employee -> "Механик".equals(employee.getEmployeesSpecialization()))
-                .count();
-
-        long electricianCount = filteredEmployees.stream()
-                .filter(employee -> "Электронщик".equals(employee.getEmployeesSpecialization()))
-                .count();
-
-        long technologistCount = filteredEmployees.stream()
-                .filter(employee -> "Технолог".equals(employee.getEmployeesSpecialization()))
-                .count();
-        long electricCount = filteredEmployees.stream()
-                .filter(employee -> "Электрик".equals(employee.getEmployeesSpecialization()))
-                .count();
-        long complectionCount = filteredEmployees.stream()
-                .filter(employee -> "Комплектация".equals(employee.getEmployeesSpecialization()))
-                .count();
-        Instant afterCountSpecializations = Instant.now();
-        logger.info("Time to count specializations: " + Duration.between(afterGetEmployees, afterCountSpecializations).toMillis() + "ms");
-
-        // Calculating busy counts
+        // Calculating busy employees with a single query, open operations count as busy
         LocalDateTime now = LocalDateTime.now();
+        Set<Long> busyEmployeeIds = pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> operationService.findBusyEmployeeIds(now));
+
+        // Один проход по сотрудникам: всего и занятых по каждой специальности
+        Map<String, Integer> countsBySpecialization = new HashMap<>();
+        Map<String, Integer> busyCountsBySpecialization = new HashMap<>();
+        for (PppEmployees employee : filteredEmployees) {
+            String specialization = employee.getEmployeesSpecialization();
+            countsBySpecialization.merge(specialization, 1, Integer::sum);
+            if (busyEmployeeIds.contains(employee.getEmployeesId())) {
+                busyCountsBySpecialization.merge(specialization, 1, Integer::sum);
+            }
+        }
 
-        long mechanicBusyCount = filteredEmployees.stream()
-                .filter(employee -> "Механик".equals(employee.getEmployeesSpecialization()))
-                .filter(employee -> isEmployeeBusyNow(employee, now))
-                .count();
-
-        long electricianBusyCount = filteredEmployees.stream()
-                .filter(employee -> "Электронщик".equals(employee.getEmployeesSpecialization()))
-                .filter(employee -> isEmployeeBusyNow(employee, now))
-                .count();
+        long mechanicCount = countsBySpecialization.getOrDefault("Механик", 0);
+        long electricianCount = countsBySpecialization.getOrDefault("Электронщик", 0);
+        long technologistCount = countsBySpecialization.getOrDefault("Технолог", 0);
+        long electricCount = countsBySpecialization.getOrDefault("Электрик", 0);
+        long complectionCount = countsBySpecialization.getOrDefault("Комплектация", 0);
 
-        long technologistBusyCount = filteredEmployees.stream()
-                .filter(employee -> "Технолог".equals(employee.getEmployeesSpecialization()))
-                .filter(employee -> isEmployeeBusyNow(employee, now))
-                .count();
-        long electricBusyCount = filteredEmployees.stream()
-                .filter(employee -> "Электрик".equals(employee.getEmployeesSpecialization()))
-                .filter(employee -> isEmployeeBusyNow(employee, now))
-                .count();
-        long complectionBusyCount = filteredEmployees.stream()
-                .filter(employee -> "Комплектация".equals(employee.getEmployeesSpecialization()))
-                .filter(employee -> isEmployeeBusyNow(employee, now))
-                .count();
-        Instant afterCountBusy = Instant.now();
-        logger.info("Time to count busy employees: " + Duration.between(afterCountSpecializations, afterCountBusy).toMillis() + "ms");
-
-        // 1. Получаем все PppDto
-        PppListDto pppListDto = pppService.getAllPpps();
-        List<PppDto> allPpps = pppListDto.getPpps();
-        Instant afterGetPpps = Instant.now();
-        logger.info("Time to get PPPs: " + Duration.between(afterCountBusy, afterGetPpps).toMillis() + "ms");
+        long mechanicBusyCount = busyCountsBySpecialization.getOrDefault("Механик", 0);
+        long electricianBusyCount = busyCountsBySpecialization.getOrDefault("Электронщик", 0);
+        long technologistBusyCount = busyCountsBySpecialization.getOrDefault("Технолог", 0);
+        long electricBusyCount = busyCountsBySpecialization.getOrDefault("Электрик", 0);
+        long complectionBusyCount = busyCountsBySpecialization.getOrDefault("Комплектация", 0);
 
-        // 2. Фильтруем PppDto в статусе "В работе"
-        List<PppDto> pppsInWorkList = allPpps.stream()
-                .filter(ppp -> ppp.getStatus() != null && "В работе".equals(ppp.getStatus()))
-                .collect(Collectors.toList());
+        // 1. Считаем completionPercentage только для станков в статусе "В работе"
+        Map<String, Double> completionPercentages = pppService.calculateCompletionPercentages("В работе");
 
-        int machinesInWorkCount = pppsInWorkList.size();
+        int machinesInWorkCount = completionPercentages.size();
 
-        // 3. Считаем PppDto, успевающие и не успевающие в норму
-        int machinesOnTimeCount = (int) pppsInWorkList.stream()
-                .filter(ppp -> ppp.getCompletionPercentage() != null && ppp.getCompletionPercentage() >= 100)
+        // 2. Считаем станки, успевающие и не успевающие в норму
+        int machinesOnTimeCount = (int) completionPercentages.values().stream()
+                .filter(completionPercentage -> completionPercentage != null && completionPercentage >= 100)
                 .count();
 
         int machinesLateCount = machinesInWorkCount - machinesOnTimeCount;
-        Instant afterCalculateMachines = Instant.now();
-        logger.info("Time to calculate machines: " + Duration.between(afterGetPpps, afterCalculateMachines).toMillis() + "ms");
 
         EmployeeStatisticsDto statistics = new EmployeeStatisticsDto();
         statistics.setMechanicCount((int) mechanicCount);
@@ -139,13 +107,7 @@ public class EmployeeStatisticsService {
         statistics.setMachinesOnTime(machinesOnTimeCount);
         statistics.setMachinesLate(machinesLateCount);
 
-        logger.info("Employee statistics calculated");
-        Instant end = Instant.now();
-        logger.info("getEmployeeStatistics() took " + Duration.between(start, end).toMillis() + "ms");
+        logger.info("Employee statistics calculated in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
         return statistics;
     }
-
-    private boolean isEmployeeBusyNow(PppEmployees employee, LocalDateTime now) {
-        return operationService.isEmployeeBusyNow(employee.getEmployeesId(), now);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package back3.project.service;
+
+import back3.project.dto.MachineScheduleDto;
+import back3.project.dto.OperationDto;
+import back3.project.dto.PppDto;
+import back3.project.dto.PppFields;
+import back3.project.dto.PppFilter;
+import back3.project.dto.ScheduleDto;
+import back3.project.dto.ScheduledStageDto;
+import back3.project.entity.PppEmployees;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Прогноз дат для всего парка с учётом численности сотрудников: станки конкурируют
+ * за одних и тех же людей из specialization. Каждый этап занимает одного сотрудника
+ * своей специализации на остаток нормы; этапы станка идут строго по порядку.
+ * Списочное планирование: готовые этапы берутся по времени готовности, каждому
+ * достаётся сотрудник, освобождающийся раньше всех (куча на специализацию).
+ * Время — позиции на шкале нормо-часов производственного календаря.
+ */
+@Service
+@RequiredArgsConstructor
+public class FleetScheduleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetScheduleService.class);
+
+    private static final List<String> STAGES = OperationService.ALLOWED_OPERATION_TYPES;
+    // Входной контроль начинается через два рабочих дня после даты начала, как в ForecastEngine
+    private static final long INCOMING_CONTROL_DELAY_SECONDS = 2 * 8 * 3600;
+    private static final PppFields SCHEDULE_FIELDS = PppFields.parse(
+            "status,planDateStart,forecastDateStart,factDateStart," + PppFields.OPERATIONS);
+
+    private final PppListSnapshotService pppListSnapshotService;
+    private final PppService pppService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ProductionCalendar productionCalendar;
+
+    @Value("${ppp.schedule.status:В работе}")
+    private String openStatus;
+
+    public ScheduleDto getSchedule() {
+        return schedule(Map.of(), Map.of());
+    }
+
+    // startDateOverrides: transaction -> дата начала; headcountOverrides: специализация -> численность
+    public ScheduleDto schedule(Map<String, LocalDate> startDateOverrides, Map<String, Integer> headcountOverrides) {
+        List<PppDto> ppps = loadOpenPpps();
+        Map<String, Integer> headcount = countHeadcount();
+        headcount.putAll(headcountOverrides);
+
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<MachineScheduleDto> machines = schedule(ppps, startDateOverrides, headcount, now);
+        long computeMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        logger.info("Scheduled {} machines with headcount {} in {} ms", machines.size(), headcount, computeMillis);
+
+        ScheduleDto scheduleDto = new ScheduleDto();
+        scheduleDto.setGeneratedAt(now);
+        scheduleDto.setHeadcount(headcount);
+        scheduleDto.setMachines(machines);
+        scheduleDto.setComputeMillis(computeMillis);
+        return scheduleDto;
+    }
+
+    // Открытые станки берём из готового снимка /api/ppp, без снимка — считаем только их операции
+    private List<PppDto> loadOpenPpps() {
+        if (pppListSnapshotService.isEnabled()) {
+            return pppListSnapshotService.getSnapshot().getPppListDto().getPpps().stream()
+                    .filter(ppp -> openStatus.equals(ppp.getStatus()) && ppp.getError() == null)
+                    .toList();
+        }
+        PppFilter filter = new PppFilter();
+        filter.setStatus(openStatus);
+        return pppService.getPpps(filter, SCHEDULE_FIELDS).getPpps().stream()
+                .filter(ppp -> ppp.getError() == null)
+                .toList();
+    }
+
+    private Map<String, Integer> countHeadcount() {
+        Map<String, Integer> headcount = new LinkedHashMap<>();
+        for (PppEmployees employee : referenceDataCache.get().getEmployees()) {
+            if (employee.getEmployeesSpecialization() != null) {
+                headcount.merge(employee.getEmployeesSpecialization(), 1, Integer::sum);
+            }
+        }
+        return headcount;
+    }
+
+    private List<MachineScheduleDto> schedule(List<PppDto> ppps, Map<String, LocalDate> startDateOverrides,
+                                              Map<String, Integer> headcount, LocalDateTime now) {
+        long nowPosition = productionCalendar.normPosition(now);
+        int machineCount = ppps.size();
+        long[][] remaining = new long[machineCount][];     // остаток нормы по этапам, секунды
+        long[] readyPositions = new long[machineCount];
+        List<MachineScheduleDto> machines = new ArrayList<>(machineCount);
+
+        for (int m = 0; m < machineCount; m++) {
+            PppDto ppp = ppps.get(m);
+            OperationDto[] stageOperations = stageOperations(ppp.getOperations());
+            remaining[m] = new long[STAGES.size()];
+            boolean started = false;
+            for (int s = 0; s < STAGES.size(); s++) {
+                remaining[m][s] = remainingNormSeconds(stageOperations[s]);
+                started |= stageOperations[s] != null && stageOperations[s].getOperationId() != null;
+            }
+
+            LocalDate startDate = startDateOverrides.getOrDefault(ppp.getTransaction(), firstNonNull(
+                    ppp.getFactDateStart(), ppp.getForecastDateStart(), ppp.getPlanDateStart()));
+            // Начатый станок продолжает с текущего момента, остальные — со своей даты начала
+            readyPositions[m] = nowPosition;
+            if (!started && startDate != null) {
+                long startPosition = productionCalendar.normPosition(startDate.atTime(ProductionCalendar.WORKDAY_START));
+                readyPositions[m] = Math.max(nowPosition, startPosition + INCOMING_CONTROL_DELAY_SECONDS);
+            }
+
+            MachineScheduleDto machine = new MachineScheduleDto();
+            machine.setTransaction(ppp.getTransaction());
+            machine.setStatus(ppp.getStatus());
+            machine.setStartDate(startDate);
+            machine.setStages(new ArrayList<>(STAGES.size()));
+            machine.setScheduled(true);
+            machines.add(machine);
+        }
+
+        // Свободные моменты сотрудников по специализациям
+        Map<String, PriorityQueue<Long>> workers = new HashMap<>();
+        headcount.forEach((specialization, count) -> {
+            PriorityQueue<Long> freeAt = new PriorityQueue<>();
+            for (int i = 0; i < count; i++) {
+                freeAt.add(nowPosition);
+            }
+            workers.put(specialization, freeAt);
+        });
+
+        // Очередь готовых этапов: {готовность, станок, этап}; при равной готовности — станок с более ранним стартом
+        PriorityQueue<long[]> ready = new PriorityQueue<>(Comparator
+                .<long[]>comparingLong(entry -> entry[0])
+                .thenComparingLong(entry -> readyPositions[(int) entry[1]])
+                .thenComparingLong(entry -> entry[1]));
+        for (int m = 0; m < machineCount; m++) {
+            ready.add(new long[]{readyPositions[m], m, 0});
+        }
+
+        long[] completionPositions = new long[machineCount];
+        while (!ready.isEmpty()) {
+            long[] entry = ready.poll();
+            long readyAt = entry[0];
+            int m = (int) entry[1];
+            int s = (int) entry[2];
+            MachineScheduleDto machine = machines.get(m);
+            String stage = STAGES.get(s);
+            String specialization = OperationCalculationService.workTypeOf(stage);
+
+            ScheduledStageDto stageDto = new ScheduledStageDto();
+            stageDto.setOperationType(stage);
+            stageDto.setSpecialization(specialization);
+            stageDto.setRemainingNormHours(remaining[m][s] / 3600.0);
+            machine.getStages().add(stageDto);
+
+            long finishedAt = readyAt;
+            if (remaining[m][s] > 0) {
+                PriorityQueue<Long> freeAt = workers.get(specialization);
+                if (freeAt == null || freeAt.isEmpty()) {
+                    // Некому выполнять этап: остальные этапы станка не планируются
+                    machine.setScheduled(false);
+                    continue;
+                }
+                long start = Math.max(readyAt, freeAt.poll());
+                finishedAt = start + remaining[m][s];
+                freeAt.add(finishedAt);
+                stageDto.setStart(productionCalendar.fromNormPosition(start));
+                stageDto.setEnd(productionCalendar.fromNormPosition(finishedAt));
+            }
+            completionPositions[m] = finishedAt;
+            if (s + 1 < STAGES.size()) {
+                ready.add(new long[]{finishedAt, m, s + 1});
+            }
+        }
+
+        for (int m = 0; m < machineCount; m++) {
+            MachineScheduleDto machine = machines.get(m);
+            if (machine.isScheduled()) {
+                machine.setForecastCompletionDate(productionCalendar.fromNormPosition(completionPositions[m]).toLocalDate());
+            }
+        }
+        return machines;
+    }
+
+    private static OperationDto[] stageOperations(List<OperationDto> operations) {
+        OperationDto[] stageOperations = new OperationDto[STAGES.size()];
+        if (operations == null) {
+            return stageOperations;
+        }
+        for (OperationDto operation : operations) {
+            if (operation == null) {
+                continue;
+            }
+            int index = STAGES.indexOf(operation.getOperationType());
+            if (index >= 0 && stageOperations[index] == null) {
+                stageOperations[index] = operation;
+            }
+        }
+        return stageOperations;
+    }
+
+    // Норма этапа с опциями минус уже отработанное; закрытый этап — 0
+    private static long remainingNormSeconds(OperationDto operation) {
+        if (operation == null) {
+            return 0;
+        }
+        double normHours = (operation.getNorm() != null ? operation.getNorm().resolveNormHours() : 0.0)
+                + (operation.getOptionNorm() != null ? operation.getOptionNorm() : 0.0);
+        long normSeconds = Math.round(normHours * 3600);
+        if (operation.getOperationId() == null) {
+            return normSeconds;                     // этап не начат
+        }
+        if (operation.getTotalDuration() != null) {
+            return 0;                               // все операции этапа закрыты
+        }
+        long workedSeconds = operation.getOperationDuration() != null ? operation.getOperationDuration() : 0;
+        return Math.max(0, normSeconds - workedSeconds);
+    }
+
+    private static LocalDate firstNonNull(LocalDate... dates) {
+        for (LocalDate date : dates) {
+            if (date != null) {
+                return date;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+package back3.project.service;
+
+import back3.project.dto.ForecastDateDto;
+import back3.project.dto.OperationDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Прогноз дат этапов станка. Этапы раскладываются в массив по порядку
+ * ALLOWED_OPERATION_TYPES, нормы считаются один раз, и обе цепочки (от плановой даты
+ * и от даты начала) продвигаются за один проход. Время прибавляется по нормо-часам
+ * производственного календаря.
+ */
+@Service
+@RequiredArgsConstructor
+public class ForecastEngine {
+
+    private static final List<String> STAGES = OperationService.ALLOWED_OPERATION_TYPES;
+    private static final Map<String, Integer> STAGE_INDEX = new HashMap<>();
+    private static final int INCOMING_CONTROL = 0;
+    private static final int TRANSPORT_POSITION = STAGES.indexOf("Транспортное положение");
+    // Входной контроль начинается через два рабочих дня после даты начала
+    private static final double INCOMING_CONTROL_DELAY_HOURS = 2 * 8;
+
+    static {
+        for (int i = 0; i < STAGES.size(); i++) {
+            STAGE_INDEX.put(STAGES.get(i), i);
+        }
+    }
+
+    private final ProductionCalendar productionCalendar;
+
+    // planDateStart / startDate == null — соответствующая цепочка не считается
+    public ForecastResult forecast(LocalDate planDateStart, LocalDate startDate, List<OperationDto> operations) {
+        // Этап -> операция (первая найденная) и его норма с опциями
+        OperationDto[] stageOperations = new OperationDto[STAGES.size()];
+        double[] stageNormHours = new double[STAGES.size()];
+        for (OperationDto operation : operations) {
+            if (operation == null || operation.getOperationType() == null) {
+                continue;
+            }
+            Integer index = STAGE_INDEX.get(operation.getOperationType());
+            if (index != null && stageOperations[index] == null) {
+                stageOperations[index] = operation;
+                stageNormHours[index] = normHours(operation);
+            }
+        }
+
+        List<ForecastDateDto> planDates = planDateStart != null ? new ArrayList<>(STAGES.size()) : null;
+        List<ForecastDateDto> startDates = startDate != null ? new ArrayList<>(STAGES.size()) : null;
+        LocalDateTime planCurrent = planDateStart != null ? planDateStart.atTime(ProductionCalendar.WORKDAY_START) : null;
+        LocalDateTime startCurrent = startDate != null ? startDate.atTime(ProductionCalendar.WORKDAY_START) : null;
+        LocalDateTime planTransport = null;
+        LocalDateTime startTransport = null;
+        double previousNormHours = 0;
+
+        for (int i = 0; i < STAGES.size(); i++) {
+            if (stageOperations[i] == null) {
+                if (planDates != null) planDates.add(null);
+                if (startDates != null) startDates.add(null);
+                continue;
+            }
+            // Этап начинается, когда выработана норма предыдущего найденного этапа
+            double hours = i == INCOMING_CONTROL ? INCOMING_CONTROL_DELAY_HOURS : previousNormHours;
+            if (planCurrent != null) {
+                planCurrent = productionCalendar.addNormHours(planCurrent, hours);
+                planDates.add(forecastDate(STAGES.get(i), planCurrent));
+            }
+            if (startCurrent != null) {
+                startCurrent = productionCalendar.addNormHours(startCurrent, hours);
+                startDates.add(forecastDate(STAGES.get(i), startCurrent));
+            }
+            if (i == TRANSPORT_POSITION) {
+                planTransport = planCurrent;
+                startTransport = startCurrent;
+            }
+            previousNormHours = stageNormHours[i];
+        }
+
+        // Транспортное положение дополнительно продлевается на нормы его опций
+        OperationDto transport = stageOperations[TRANSPORT_POSITION];
+        double transportOptionNorm = transport != null && transport.getOptionNorm() != null ? transport.getOptionNorm() : 0.0;
+        return new ForecastResult(planDates, startDates,
+                extendedTransportPositionDate(planTransport, transportOptionNorm),
+                extendedTransportPositionDate(startTransport, transportOptionNorm));
+    }
+
+    private LocalDate extendedTransportPositionDate(LocalDateTime transportStart, double optionNorm) {
+        if (transportStart == null) {
+            return null;
+        }
+        return productionCalendar.addNormHours(transportStart, optionNorm).toLocalDate();
+    }
+
+    private static double normHours(OperationDto operation) {
+        double normHours = operation.getNorm() != null ? operation.getNorm().resolveNormHours() : 0.0;
+        return normHours + (operation.getOptionNorm() != null ? operation.getOptionNorm() : 0.0);
+    }
+
+    private static ForecastDateDto forecastDate(String operationName, LocalDateTime dateTime) {
+        ForecastDateDto forecastDateDto = new ForecastDateDto();
+        forecastDateDto.setOperationName(operationName);
+        forecastDateDto.setForecastDate(dateTime.toLocalDate());
+        return forecastDateDto;
+    }
+}
@@ -0,0 +1,30 @@
+package back3.project.service;
+
+import back3.project.dto.ForecastDateDto;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Прогнозы станка от плановой и от фактической (или прогнозной) даты начала.
+ * Цепочка, которую не запрашивали или для которой нет даты начала, равна null.
+ */
+@Getter
+public class ForecastResult {
+
+    private final List<ForecastDateDto> forecastDatesPlan;
+    private final List<ForecastDateDto> forecastDatesStart;
+    private final LocalDate extendedTransportPositionDatePlan;
+    private final LocalDate extendedTransportPositionDate;
+
+    public ForecastResult(List<ForecastDateDto> forecastDatesPlan,
+                          List<ForecastDateDto> forecastDatesStart,
+                          LocalDate extendedTransportPositionDatePlan,
+                          LocalDate extendedTransportPositionDate) {
+        this.forecastDatesPlan = forecastDatesPlan;
+        this.forecastDatesStart = forecastDatesStart;
+        this.extendedTransportPositionDatePlan = extendedTransportPositionDatePlan;
+        this.extendedTransportPositionDate = extendedTransportPositionDate;
+    }
+}
@@ -17,7 +17,7 @@ import org.slf4j.LoggerFactory;
 @RequiredArgsConstructor
 public class InterOperationTimeService {
 
-    private final TimeCalculationService timeCalculationService;
+    private final ProductionCalendar productionCalendar;
     private static final Logger logger = LoggerFactory.getLogger(InterOperationTimeService.class);
 
     private static final Map<String, String> OPERATION_PRECEDENCE = new HashMap<>();
@@ -31,9 +31,6 @@ public class InterOperationTimeService {
         OPERATION_PRECEDENCE.put("Транспортное положение", "Выходной контроль");
     }
 
-    private static final LocalTime WORKDAY_START = LocalTime.of(8, 30);
-    private static final LocalTime WORKDAY_END = LocalTime.of(17, 30);
-
     public List<OperationTime> calculateTimeDifferences(List<OperationDto> operations) {
         List<OperationTime> operationTimes = new ArrayList<>();
 
@@ -61,14 +58,12 @@ public class InterOperationTimeService {
                     timeDifference = Duration.between(previousStopTime, currentStartTime);
                 } else {
                     // Иначе учитываем рабочие часы и выходные
-                    timeDifference = calculateWorkingHours(previousStopTime, currentStartTime);
+                    timeDifference = WorkingHoursCalculator.calculateWorkingTimeBetween(previousStopTime, currentStartTime, productionCalendar);
                 }
 
-                String formattedDuration = timeCalculationService.formatDuration(timeDifference);
-
                 OperationTime operationTime = new OperationTime();
                 operationTime.setOperationType(currentOperationType);
-                operationTime.setTimeDifference(formattedDuration);
+                operationTime.setTimeDifference(timeDifference.getSeconds());
                 operationTimes.add(operationTime);
             }
         }
@@ -76,43 +71,6 @@ public class InterOperationTimeService {
         return operationTimes;
     }
 
-    private Duration calculateWorkingHours(LocalDateTime start, LocalDateTime end) {
-        Duration totalWorkingTime = Duration.ZERO;
-        LocalDateTime current = start;
-        boolean negative = false;
-
-        if (end.isBefore(start)) {
-            LocalDateTime temp = start;
-            start = end;
-            end = temp;
-            negative = true;
-        }
-
-        while (current.isBefore(end)) {
-            if (!isWeekend(current.toLocalDate())) {
-                LocalDateTime workdayStart = current.toLocalDate().atTime(WORKDAY_START);
-                LocalDateTime workdayEnd = current.toLocalDate().atTime(WORKDAY_END);
-
-                LocalDateTime intervalStart = current.isBefore(workdayStart) ? workdayStart : current;
-                LocalDateTime intervalEnd = end.isBefore(workdayEnd) ? end : workdayEnd;
-
-                if (intervalStart.isBefore(intervalEnd)) {
-                    totalWorkingTime = totalWorkingTime.plus(Duration.between(intervalStart, intervalEnd));
-                }
-            }
-            current = current.plusDays(1).with(WORKDAY_START);
-        }
-        if(negative){
-            totalWorkingTime = totalWorkingTime.negated();
-        }
-        return totalWorkingTime;
-    }
-
-    private boolean isWeekend(LocalDate date) {
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
-    }
-
     private OperationDto findPreviousOperation(List<OperationDto> operations, String previousOperationType, OperationDto currentOperation) {
         for (OperationDto operation : operations) {
             if (operation != null) {
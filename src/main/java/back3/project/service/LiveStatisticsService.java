@@ -0,0 +1,180 @@
+package back3.project.service;
+
+import back3.project.dto.EmployeeStatisticsDto;
+import back3.project.dto.PppDeltaDto;
+import back3.project.dto.PppDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Рассылка статистики цеха и изменений /api/ppp подписчикам SSE. Статистика и дельта
+ * считаются один раз за цикл обновления снимка и отправляются всем открытым экранам,
+ * вместо того чтобы каждый экран опрашивал /employee-statistics и /api/ppp.
+ */
+@Service
+public class LiveStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStatisticsService.class);
+
+    static final String STATISTICS_EVENT = "statistics";
+    static final String PPP_DELTA_EVENT = "ppp-delta";
+    static final String SNAPSHOT_EVENT = "snapshot";
+
+    private final EmployeeStatisticsService employeeStatisticsService;
+    private final PppListSnapshotService pppListSnapshotService;
+    private final Duration emitterTimeout;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    // Рассылка идёт отдельно от потока, обновляющего снимок
+    private final ExecutorService broadcaster = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-statistics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile EmployeeStatisticsDto lastStatistics;
+
+    public LiveStatisticsService(EmployeeStatisticsService employeeStatisticsService,
+                                 PppListSnapshotService pppListSnapshotService,
+                                 @Value("${ppp.live.emitter-timeout:PT30M}") Duration emitterTimeout) {
+        this.employeeStatisticsService = employeeStatisticsService;
+        this.pppListSnapshotService = pppListSnapshotService;
+        this.emitterTimeout = emitterTimeout;
+    }
+
+    // Новый подписчик сразу получает последнюю статистику и версию снимка, от которой пойдут дельты
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+        emitters.add(emitter);
+        logger.info("Live statistics subscriber added, {} subscribers", emitters.size());
+
+        broadcaster.execute(() -> {
+            try {
+                EmployeeStatisticsDto statistics = lastStatistics != null ? lastStatistics : refreshStatistics();
+                send(emitter, STATISTICS_EVENT, statistics);
+                if (pppListSnapshotService.isEnabled()) {
+                    PppListSnapshot snapshot = pppListSnapshotService.getSnapshot();
+                    send(emitter, SNAPSHOT_EVENT, Map.of("version", snapshot.getVersion(), "etag", snapshot.getEtag()));
+                }
+            } catch (Exception e) {
+                logger.error("Failed to send initial live statistics", e);
+            }
+        });
+        return emitter;
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(PppSnapshotRefreshedEvent event) {
+        if (emitters.isEmpty()) {
+            lastStatistics = null; // Без подписчиков не считаем; первый подписчик посчитает заново
+            return;
+        }
+        broadcaster.execute(() -> broadcast(event));
+    }
+
+    // Без снимка /api/ppp событий нет: рассылаем только статистику с тем же интервалом
+    @Scheduled(initialDelayString = "${ppp.snapshot.refresh-interval:PT1M}", fixedDelayString = "${ppp.snapshot.refresh-interval:PT1M}")
+    public void scheduledBroadcastWithoutSnapshot() {
+        if (pppListSnapshotService.isEnabled() || emitters.isEmpty()) {
+            return;
+        }
+        broadcaster.execute(() -> broadcast(null));
+    }
+
+    // event == null — только статистика
+    private void broadcast(PppSnapshotRefreshedEvent event) {
+        long startedAt = System.nanoTime();
+        EmployeeStatisticsDto statistics;
+        PppDeltaDto delta;
+        try {
+            statistics = refreshStatistics();
+            delta = event != null && event.isChanged() && event.getPrevious() != null ? buildDelta(event) : null;
+        } catch (Exception e) {
+            logger.error("Failed to compute live statistics", e);
+            return;
+        }
+
+        for (SseEmitter emitter : emitters) {
+            if (send(emitter, STATISTICS_EVENT, statistics) && delta != null) {
+                send(emitter, PPP_DELTA_EVENT, delta);
+            }
+        }
+        logger.info("Live statistics pushed to {} subscribers ({} changed machines) in {} ms", emitters.size(),
+                delta != null ? delta.getChanged().size() : 0, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private EmployeeStatisticsDto refreshStatistics() {
+        EmployeeStatisticsDto statistics = employeeStatisticsService.getEmployeeStatistics();
+        lastStatistics = statistics;
+        return statistics;
+    }
+
+    // Станки, чьи DTO отличаются от предыдущей версии, и исчезнувшие станки
+    static PppDeltaDto buildDelta(PppSnapshotRefreshedEvent event) {
+        Map<String, PppDto> previousByTransaction = new HashMap<>();
+        for (PppDto pppDto : event.getPrevious().getPppListDto().getPpps()) {
+            previousByTransaction.put(pppDto.getTransaction(), pppDto);
+        }
+        List<PppDto> changed = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        for (PppDto pppDto : event.getCurrent().getPppListDto().getPpps()) {
+            present.add(pppDto.getTransaction());
+            if (!Objects.equals(pppDto, previousByTransaction.get(pppDto.getTransaction()))) {
+                changed.add(pppDto);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String transaction : previousByTransaction.keySet()) {
+            if (!present.contains(transaction)) {
+                removed.add(transaction);
+            }
+        }
+
+        PppDeltaDto delta = new PppDeltaDto();
+        delta.setFromVersion(event.getPrevious().getVersion());
+        delta.setToVersion(event.getCurrent().getVersion());
+        delta.setEtag(event.getCurrent().getEtag());
+        delta.setChanged(changed);
+        delta.setRemoved(removed);
+        return delta;
+    }
+
+    private boolean send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Вкладка закрыта или соединение оборвано
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        broadcaster.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+}
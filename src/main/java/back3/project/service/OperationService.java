@@ -5,17 +5,14 @@ import back3.project.dto.NormDto;
 import back3.project.entity.PppOperation;
 import back3.project.entity.PppNorms;
 import back3.project.repository.PppOperationRepository;
-import back3.project.repository.PppNormsRepository;
+import back3.project.repository.StageAggregate;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,7 +22,8 @@ public class OperationService {
 
     private final PppOperationRepository pppOperationRepository;
     private final OperationCalculationService operationCalculationService;
-    private final PppNormsRepository pppNormsRepository;
+    private final PipelineMetrics pipelineMetrics;
+    private final PppDataSnapshotService pppDataSnapshotService;
 
     public boolean isEmployeeBusyNow(Long employeesId, LocalDateTime now) {
         logger.info("isEmployeeBusyNow() called for employee: " + employeesId + " at time: " + now);
@@ -33,7 +31,12 @@ public class OperationService {
         return !operations.isEmpty();
     }
 
-    private static final Map<String, Integer> OPERATION_ORDER = new HashMap<>();
+    // Один запрос вместо isEmployeeBusyNow() на каждого сотрудника
+    public Set<Long> findBusyEmployeeIds(LocalDateTime instant) {
+        logger.info("findBusyEmployeeIds() called at time: {}", instant);
+        return new HashSet<>(pppOperationRepository.findBusyEmployeeIds(instant));
+    }
+
     public static final List<String> ALLOWED_OPERATION_TYPES = Arrays.asList(
             "Входной контроль",
             "Подключение",
@@ -44,45 +47,31 @@ public class OperationService {
             "Транспортное положение"
     );
 
-    static {
-        OPERATION_ORDER.put("Входной контроль", 1);
-        OPERATION_ORDER.put("Подключение", 2);
-        OPERATION_ORDER.put("Проверка механиком", 3);
-        OPERATION_ORDER.put("Проверка электронщиком", 4);
-        OPERATION_ORDER.put("Проверка технологом", 5);
-        OPERATION_ORDER.put("Выходной контроль", 6);
-        OPERATION_ORDER.put("Транспортное положение", 7);
-    }
-
-    public List<OperationDto> getAggregatedOperations(String transaction) {
+    public List<OperationDto> getAggregatedOperations(String transaction, PppDataSnapshot snapshot) {
         logger.info("getAggregatedOperations() called for transaction: {}", transaction);
 
         List<OperationDto> operationDtos = new ArrayList<>();
+        // Options of the transaction are scanned once for all stages
+        OptionIndex optionIndex = pipelineMetrics.time(PipelineMetrics.OPTIONS,
+                () -> operationCalculationService.buildOptionIndex(transaction, snapshot));
 
         for (String operationType : ALLOWED_OPERATION_TYPES) {
             logger.debug("Processing operation type: {} for transaction: {}", operationType, transaction);
 
-            // Get operations from the database for the current operation type
-            List<PppOperation> operations = null;
-            try {
-                operations = pppOperationRepository.findByTransactionAndEmployeesIdIsNotNullAndOperationType(transaction, operationType);
-                logger.debug("Found {} operations of type {} for transaction: {}", operations.size(), operationType, transaction);
-            } catch (Exception e) {
-                logger.error("Error while fetching operations of type {} for transaction: {}", operationType, transaction, e);
-                operations = Collections.emptyList(); // Treat exception as no operations found
-            }
+            // Stage aggregates of the current type are already loaded in the snapshot
+            StageAggregate stage = snapshot.getStageAggregate(transaction, operationType);
 
             // If no operations found, create a default OperationDto
-            if (operations == null || operations.isEmpty()) {
+            if (stage == null) {
                 logger.info("No operations found for type {} and transaction: {}. Creating default operation DTO.", operationType, transaction);
-                OperationDto defaultOperationDto = createDefaultOperationDto(transaction, operationType);
+                OperationDto defaultOperationDto = createDefaultOperationDto(transaction, operationType, snapshot);
                 if (defaultOperationDto != null) {
                     operationDtos.add(defaultOperationDto);
                 }
             } else {
                 logger.debug("Aggregating operations of type {} for transaction: {}", operationType, transaction);
                 // Aggregate the operations using OperationCalculationService
-                OperationDto aggregatedOperationDto = operationCalculationService.createAggregatedOperationDto(operations, transaction);
+                OperationDto aggregatedOperationDto = operationCalculationService.createAggregatedOperationDto(stage, snapshot, optionIndex);
                 if (aggregatedOperationDto != null) {
                     aggregatedOperationDto.setIsTimeExceedsNorm(isTimeExceedsNorm(aggregatedOperationDto));
                     operationDtos.add(aggregatedOperationDto);
@@ -95,9 +84,9 @@ public class OperationService {
     }
 
 
-    private OperationDto createDefaultOperationDto(String transaction, String operationType) {
+    private OperationDto createDefaultOperationDto(String transaction, String operationType, PppDataSnapshot snapshot) {
         // Get norm from PppNorms table by operationType
-        PppNorms norm = pppNormsRepository.findByOperationNormName(operationType)
+        PppNorms norm = snapshot.findNorm(operationType)
                 .orElse(null); // Handle the case when norm is not found
 
         if (norm != null) {
@@ -105,6 +94,7 @@ public class OperationService {
             normDto.setOperationNormName(norm.getOperationNormName());
             normDto.setOperationNorm(norm.getOperationNorm());
             normDto.setOperationType(norm.getOperationType());
+            normDto.setOperationNormHours(snapshot.getNormHours(norm.getOperationNormName()));
 
             OperationDto defaultOperationDto = new OperationDto();
             defaultOperationDto.setOperationType(operationType);
@@ -116,9 +106,9 @@ public class OperationService {
             defaultOperationDto.setStartTime(null);
             defaultOperationDto.setStopTime(null);
             defaultOperationDto.setEmployee(null);
-            defaultOperationDto.setOperationDuration("00:00:00");
-            defaultOperationDto.setOptionsDuration("00:00:00");
-            defaultOperationDto.setTotalDuration("00:00:00");
+            defaultOperationDto.setOperationDuration(0L);
+            defaultOperationDto.setOptionsDuration(0L);
+            defaultOperationDto.setTotalDuration(0L);
             defaultOperationDto.setOptionNorm(0.0);
             defaultOperationDto.setIsTimeExceedsNorm(false);
             defaultOperationDto.setCategory(null);
@@ -136,59 +126,79 @@ public class OperationService {
     public List<OperationDto> getAllAggregatedOperations() {
         logger.info("getAllAggregatedOperations() called");
 
-        List<PppOperation> operations = null;
+        PppDataSnapshot snapshot;
+        try {
+            // Load all operations with employeesId together with norms, employees and faults
+            snapshot = pppDataSnapshotService.loadSnapshot();
+        } catch (Exception e) {
+            logger.error("Error while fetching operations", e);
+            return List.of();
+        }
+        return aggregateOperations(snapshot, null, null);
+    }
+
+    // Агрегированные операции этапов, начатых в [from, to): отбор станков делает база, здесь только граница этапа
+    public List<OperationDto> getAggregatedOperationsStartedBetween(LocalDateTime from, LocalDateTime to) {
+        logger.info("getAggregatedOperationsStartedBetween() called for [{}, {})", from, to);
+
+        PppDataSnapshot snapshot;
         try {
-            // Get all operations from the database, filtering out those with null employeesId
-            operations = pppOperationRepository.findByEmployeesIdIsNotNull();
-            logger.debug("Found {} main operations", operations.size());
+            snapshot = pppDataSnapshotService.loadSnapshotForStagesStartedBetween(ALLOWED_OPERATION_TYPES, from, to);
         } catch (Exception e) {
             logger.error("Error while fetching operations", e);
             return List.of();
         }
+        return aggregateOperations(snapshot, from, to);
+    }
 
-        // Filter operations to only include allowed types
-        operations = operations.stream()
-                .filter(op -> ALLOWED_OPERATION_TYPES.contains(op.getOperationType()))
-                .collect(Collectors.toList());
-
-        logger.debug("After filtering, {} operations remain", operations.size());
-
-        // Sort operations by predefined order
-        operations.sort(Comparator.comparing(op -> OPERATION_ORDER.getOrDefault(op.getOperationType(), Integer.MAX_VALUE)));
-        logger.debug("Operations sorted by OPERATION_ORDER");
-
-        // Group operations by transaction
-        Map<String, List<PppOperation>> operationsByTransaction = operations.stream()
-                .collect(Collectors.groupingBy(PppOperation::getTransaction));
-        logger.debug("Operations grouped by transaction. Found {} transactions", operationsByTransaction.size());
-
-        // Create aggregated operations for each transaction
-        List<OperationDto> operationDtos = operationsByTransaction.entrySet().stream()
-                .flatMap(entry -> {
-                    String transaction = entry.getKey();
-                    List<PppOperation> transactionOperations = entry.getValue();
-                    logger.debug("Creating aggregated operation DTOs for transaction: {}", transaction);
-
-                    // Group operations by type before creating DTOs
-                    Map<String, List<PppOperation>> operationsByType = transactionOperations.stream()
-                            .collect(Collectors.groupingBy(PppOperation::getOperationType));
-
-                    return operationsByType.entrySet().stream()
-                            .map(typeEntry -> {
-                                List<PppOperation> operationsOfType = typeEntry.getValue();
-                                OperationDto operationDto = operationCalculationService.createAggregatedOperationDto(operationsOfType, transaction);
-                                if (operationDto != null) {
-                                    operationDto.setIsTimeExceedsNorm(isTimeExceedsNorm(operationDto));
-                                }
-                                return operationDto;
-                            });
-                })
-                .collect(Collectors.toList());
-
-        logger.info("Returning {} aggregated operations for all transactions", operationDtos.size());
+    // Агрегированные операции снимка по станкам (для сводок, которые обновляются по изменившимся станкам)
+    public Map<String, List<OperationDto>> getAggregatedOperationsByTransaction(PppDataSnapshot snapshot) {
+        Map<String, List<OperationDto>> operationsByTransaction = new LinkedHashMap<>();
+        for (String transaction : snapshot.getOperationsByTransactionAndStage().keySet()) {
+            List<OperationDto> operationDtos = new ArrayList<>();
+            aggregateTransaction(transaction, snapshot, null, null, operationDtos);
+            operationsByTransaction.put(transaction, operationDtos);
+        }
+        return operationsByTransaction;
+    }
+
+    // from/to == null — без отбора по дате начала этапа
+    private List<OperationDto> aggregateOperations(PppDataSnapshot snapshot, LocalDateTime from, LocalDateTime to) {
+        List<OperationDto> operationDtos = new ArrayList<>();
+        for (String transaction : snapshot.getOperationsByTransactionAndStage().keySet()) {
+            aggregateTransaction(transaction, snapshot, from, to, operationDtos);
+        }
+
+        logger.info("Returning {} aggregated operations", operationDtos.size());
         return operationDtos;
     }
 
+    // Create aggregated operations for the transaction, only for allowed types in predefined order
+    private void aggregateTransaction(String transaction, PppDataSnapshot snapshot, LocalDateTime from, LocalDateTime to,
+                                      List<OperationDto> operationDtos) {
+        logger.debug("Creating aggregated operation DTOs for transaction: {}", transaction);
+        OptionIndex optionIndex = pipelineMetrics.time(PipelineMetrics.OPTIONS,
+                () -> operationCalculationService.buildOptionIndex(transaction, snapshot));
+        for (String operationType : ALLOWED_OPERATION_TYPES) {
+            StageAggregate stage = snapshot.getStageAggregate(transaction, operationType);
+            if (stage == null || (from != null && !stageStartedBetween(stage, from, to))) {
+                continue;
+            }
+            OperationDto operationDto = operationCalculationService.createAggregatedOperationDto(stage, snapshot, optionIndex);
+            if (operationDto == null) {
+                continue;
+            }
+            operationDto.setIsTimeExceedsNorm(isTimeExceedsNorm(operationDto));
+            operationDtos.add(operationDto);
+        }
+    }
+
+    // Начало этапа — самое раннее start_work его операций (как startTime агрегированной операции)
+    private static boolean stageStartedBetween(StageAggregate stage, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime startTime = stage.getStartTime();
+        return startTime != null && !startTime.isBefore(from) && startTime.isBefore(to);
+    }
+
     public boolean isTimeExceedsNorm(OperationDto operationDto) {
         // Проверяем, что operationDto не null
         if (operationDto == null) {
@@ -196,43 +206,16 @@ public class OperationService {
             return false;
         }
 
-        // Получаем totalDuration в секундах
-        long totalDurationSeconds = parseDurationToSeconds(operationDto.getTotalDuration());
+        // totalDuration уже в секундах; null — этап не закрыт
+        long totalDurationSeconds = operationDto.getTotalDuration() != null ? operationDto.getTotalDuration() : 0;
 
         // Считаем сумму operationNorm и optionNorm
         NormDto norm = operationDto.getNorm();
-        double totalNormHours = Double.parseDouble(norm.getOperationNorm()) + operationDto.getOptionNorm();
+        double totalNormHours = norm.resolveNormHours() + operationDto.getOptionNorm();
 
         // Переводим totalNormHours в секунды
         long totalNormSeconds = (long) (totalNormHours * 3600);
 
         return totalDurationSeconds < totalNormSeconds; // Изменено на ">"
     }
-
-    private long parseDurationToSeconds(String duration) {
-        if (duration == null || duration.isEmpty()) {
-            return 0;
-        }
-        try {
-            Duration parsedDuration = Duration.parse(duration);
-            return parsedDuration.getSeconds();
-        } catch (DateTimeParseException e) {
-            logger.warn("Invalid duration format: {}.  Attempting to parse as HH:mm:ss", duration, e);
-            // Попытка разобрать как HH:mm:ss
-            String[] parts = duration.split(":");
-            if (parts.length != 3) {
-                logger.error("Invalid duration format: {}", duration);
-                return 0;
-            }
-            try {
-                long hours = Long.parseLong(parts[0]);
-                long minutes = Long.parseLong(parts[1]);
-                long seconds = Long.parseLong(parts[2]);
-                return hours * 3600 + minutes * 60 + seconds;
-            } catch (NumberFormatException ex) {
-                logger.error("Error parsing duration: {}", duration, ex);
-                return 0;
-            }
-        }
-    }
-}
\ No newline at end of file
+}
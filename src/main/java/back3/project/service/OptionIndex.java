@@ -0,0 +1,31 @@
+package back3.project.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Суммы норм и длительностей опций одного станка по типу работ
+ * (Электрик, Механик, ...). Строится за один проход по операциям станка.
+ */
+public class OptionIndex {
+
+    private final Map<String, Double> optionNormByWorkType = new HashMap<>();
+    private final Map<String, Duration> optionsDurationByWorkType = new HashMap<>();
+
+    void addOptionNorm(String workType, double optionNorm) {
+        optionNormByWorkType.merge(workType, optionNorm, Double::sum);
+    }
+
+    void addOptionsDuration(String workType, Duration duration) {
+        optionsDurationByWorkType.merge(workType, duration, Duration::plus);
+    }
+
+    public double getOptionNorm(String workType) {
+        return optionNormByWorkType.getOrDefault(workType, 0.0);
+    }
+
+    public Duration getOptionsDuration(String workType) {
+        return optionsDurationByWorkType.getOrDefault(workType, Duration.ZERO);
+    }
+}
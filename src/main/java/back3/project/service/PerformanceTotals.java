@@ -0,0 +1,80 @@
+package back3.project.service;
+
+import back3.project.dto.OperationDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Суммы показателей сотрудника по агрегированным операциям. Только целые величины
+ * (норма — в миллисекундах), поэтому суммы можно вычитать без накопления ошибки.
+ */
+class PerformanceTotals {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceTotals.class);
+
+    static final PerformanceTotals EMPTY = new PerformanceTotals();
+
+    private long totalOperations;
+    private long onTimeOperations;
+    private long timeSpentSeconds;
+    private long normMillis;         // operationNorm + optionNorm
+
+    PerformanceTotals() {
+    }
+
+    PerformanceTotals(PerformanceTotals other) {
+        add(other);
+    }
+
+    void add(OperationDto operationDto) {
+        totalOperations++;
+        if (Boolean.TRUE.equals(operationDto.getIsTimeExceedsNorm())) {
+            onTimeOperations++;
+        }
+        if (operationDto.getTotalDuration() != null) { // null — этап не закрыт
+            timeSpentSeconds += operationDto.getTotalDuration();
+        }
+        double operationNorm = 0.0;
+        try {
+            operationNorm = operationDto.getNorm().resolveNormHours(); // Норма уже разобрана при загрузке справочника
+        } catch (NumberFormatException | NullPointerException e) {
+            logger.warn("Не удалось преобразовать operationNorm в число для операции: {}", operationDto.getOperationId());
+        }
+        double optionNorm = operationDto.getOptionNorm() != null ? operationDto.getOptionNorm() : 0.0;
+        normMillis += Math.round((operationNorm + optionNorm) * 3_600_000);
+    }
+
+    void add(PerformanceTotals other) {
+        totalOperations += other.totalOperations;
+        onTimeOperations += other.onTimeOperations;
+        timeSpentSeconds += other.timeSpentSeconds;
+        normMillis += other.normMillis;
+    }
+
+    void subtract(PerformanceTotals other) {
+        totalOperations -= other.totalOperations;
+        onTimeOperations -= other.onTimeOperations;
+        timeSpentSeconds -= other.timeSpentSeconds;
+        normMillis -= other.normMillis;
+    }
+
+    boolean isEmpty() {
+        return totalOperations == 0;
+    }
+
+    long getTotalOperations() {
+        return totalOperations;
+    }
+
+    long getOnTimeOperations() {
+        return onTimeOperations;
+    }
+
+    long getTimeSpentSeconds() {
+        return timeSpentSeconds;
+    }
+
+    double getNormSeconds() {
+        return normMillis / 1000.0;
+    }
+}
@@ -0,0 +1,58 @@
+package back3.project.service;
+
+import back3.project.repository.SqlStatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Таймеры этапов расчёта (ppp.pipeline{stage=...}, с гистограммой для Prometheus)
+ * и счётчик строк, загруженных из базы (ppp.rows.loaded{table=...}).
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineMetrics {
+
+    public static final String DB_FETCH = "db-fetch";
+    public static final String OPERATIONS = "operations";
+    public static final String OPTIONS = "options";
+    public static final String INTER_OPERATION = "inter-operation";
+    public static final String FORECAST = "forecast";
+    public static final String SERIALIZATION = "serialization";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rowCounters = new ConcurrentHashMap<>();
+
+    public <T> T time(String stage, Supplier<T> body) {
+        return timer(stage).record(body);
+    }
+
+    public void time(String stage, Runnable body) {
+        timer(stage).record(body);
+    }
+
+    public Timer timer(String stage) {
+        return timers.computeIfAbsent(stage, key -> Timer.builder("ppp.pipeline")
+                .description("Время этапа расчёта")
+                .tag("stage", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    // Строки, загруженные из таблицы; попадают и в счётчик текущего запроса
+    public void recordRows(String table, long rows) {
+        rowCounters.computeIfAbsent(table, key -> Counter.builder("ppp.rows.loaded")
+                .description("Строки, загруженные из базы")
+                .tag("table", key)
+                .register(meterRegistry)).increment(rows);
+        SqlStatementCounter.addRows(rows);
+    }
+}
@@ -0,0 +1,122 @@
+package back3.project.service;
+
+import back3.project.dto.PppDto;
+import back3.project.entity.Ppp;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Сборка PppDto по станкам: последовательно или на ограниченном пуле потоков.
+ * Порядок результата совпадает с порядком станков, ошибка одного станка не роняет весь ответ.
+ */
+@Component
+@RequiredArgsConstructor
+public class PppAggregationExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PppAggregationExecutor.class);
+
+    private final MeterRegistry meterRegistry;
+
+    // 0 — последовательно, иначе число одновременно собираемых станков
+    @Value("${ppp.aggregation.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ppp.aggregation.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        if (parallelism <= 0) {
+            return;
+        }
+        if (virtualThreads) {
+            // Виртуальных потоков может быть сколько угодно, поэтому ограничиваем семафором
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            permits = new Semaphore(parallelism);
+        } else {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+        logger.info("PPP aggregation runs on {} with parallelism {}", virtualThreads ? "virtual threads" : "a fixed pool", parallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public List<PppDto> aggregate(List<Ppp> ppps, Function<Ppp, PppDto> builder, BiFunction<Ppp, Exception, PppDto> onFailure) {
+        String mode = executor == null ? "sequential" : "parallel";
+        long startNanos = System.nanoTime();
+        List<PppDto> pppDtos = executor == null
+                ? aggregateSequentially(ppps, builder, onFailure)
+                : aggregateInParallel(ppps, builder, onFailure);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        meterRegistry.timer("ppp.aggregation.machines", "mode", mode).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        logger.info("Aggregated {} machines in {} ms ({}, parallelism {})",
+                ppps.size(), Duration.ofNanos(elapsedNanos).toMillis(), mode, Math.max(parallelism, 1));
+        return pppDtos;
+    }
+
+    private List<PppDto> aggregateSequentially(List<Ppp> ppps, Function<Ppp, PppDto> builder, BiFunction<Ppp, Exception, PppDto> onFailure) {
+        List<PppDto> pppDtos = new ArrayList<>(ppps.size());
+        for (Ppp ppp : ppps) {
+            pppDtos.add(buildSafely(ppp, builder, onFailure));
+        }
+        return pppDtos;
+    }
+
+    private List<PppDto> aggregateInParallel(List<Ppp> ppps, Function<Ppp, PppDto> builder, BiFunction<Ppp, Exception, PppDto> onFailure) {
+        List<CompletableFuture<PppDto>> futures = new ArrayList<>(ppps.size());
+        for (Ppp ppp : ppps) {
+            futures.add(CompletableFuture.supplyAsync(() -> buildWithPermit(ppp, builder, onFailure), executor));
+        }
+        List<PppDto> pppDtos = new ArrayList<>(ppps.size());
+        for (CompletableFuture<PppDto> future : futures) {
+            pppDtos.add(future.join());
+        }
+        return pppDtos;
+    }
+
+    private PppDto buildWithPermit(Ppp ppp, Function<Ppp, PppDto> builder, BiFunction<Ppp, Exception, PppDto> onFailure) {
+        if (permits == null) {
+            return buildSafely(ppp, builder, onFailure);
+        }
+        permits.acquireUninterruptibly();
+        try {
+            return buildSafely(ppp, builder, onFailure);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PppDto buildSafely(Ppp ppp, Function<Ppp, PppDto> builder, BiFunction<Ppp, Exception, PppDto> onFailure) {
+        try {
+            return builder.apply(ppp);
+        } catch (Exception e) {
+            logger.error("Failed to aggregate machine {}", ppp.getTransaction(), e);
+            return onFailure.apply(ppp, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package back3.project.service;
+
+import back3.project.entity.Ppp;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Результат сравнения текущего состояния таблиц с последним зафиксированным:
+ * какие станки нужно пересчитать. fullRefresh — пересчитать все.
+ */
+@Getter
+public class PppChangeSet {
+
+    private final boolean fullRefresh;
+    private final List<Ppp> ppps;
+    private final Set<String> changedTransactions;
+    private final Set<String> removedTransactions;
+
+    // Состояние, которое фиксируется после успешного пересчёта
+    final Map<String, Ppp> pppsByTransaction;
+    final TransactionFingerprints fingerprints;
+    final ReferenceData referenceData;
+
+    PppChangeSet(boolean fullRefresh,
+                 List<Ppp> ppps,
+                 Set<String> changedTransactions,
+                 Set<String> removedTransactions,
+                 Map<String, Ppp> pppsByTransaction,
+                 TransactionFingerprints fingerprints,
+                 ReferenceData referenceData) {
+        this.fullRefresh = fullRefresh;
+        this.ppps = ppps;
+        this.changedTransactions = changedTransactions;
+        this.removedTransactions = removedTransactions;
+        this.pppsByTransaction = pppsByTransaction;
+        this.fingerprints = fingerprints;
+        this.referenceData = referenceData;
+    }
+
+    public boolean hasChanges() {
+        return fullRefresh || !changedTransactions.isEmpty() || !removedTransactions.isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+package back3.project.service;
+
+import back3.project.entity.Ppp;
+import back3.project.repository.PppRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Обнаружение изменений в plan_ppp, work_report_ppp и faults по станкам.
+ * Для work_report_ppp и faults сравниваются отпечатки по transaction (число строк и md5
+ * содержимого строк), для plan_ppp — сами строки.
+ */
+@Service
+@RequiredArgsConstructor
+public class PppChangeTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PppChangeTracker.class);
+
+    private final PppRepository pppRepository;
+    private final TransactionFingerprintService transactionFingerprintService;
+    private final ReferenceDataCache referenceDataCache;
+
+    private volatile PppChangeSet committed;
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppChangeSet detectChanges() {
+        List<Ppp> ppps = pppRepository.findAll();
+        Map<String, Ppp> pppsByTransaction = new LinkedHashMap<>();
+        for (Ppp ppp : ppps) {
+            pppsByTransaction.put(ppp.getTransaction(), ppp);
+        }
+
+        TransactionFingerprints fingerprints = transactionFingerprintService.load();
+        ReferenceData referenceData = referenceDataCache.get();
+
+        PppChangeSet previous = committed;
+        if (previous == null || !previous.referenceData.hasSameContent(referenceData)) {
+            // Первый расчёт или изменились нормы/сотрудники — пересчитываем все станки
+            return new PppChangeSet(true, ppps, pppsByTransaction.keySet(), Set.of(),
+                    pppsByTransaction, fingerprints, referenceData);
+        }
+
+        Set<String> changedTransactions = new HashSet<>();
+        for (Map.Entry<String, Ppp> entry : pppsByTransaction.entrySet()) {
+            String transaction = entry.getKey();
+            if (!entry.getValue().equals(previous.pppsByTransaction.get(transaction))
+                    || fingerprints.isChanged(transaction, previous.fingerprints)) {
+                changedTransactions.add(transaction);
+            }
+        }
+        Set<String> removedTransactions = new HashSet<>(previous.pppsByTransaction.keySet());
+        removedTransactions.removeAll(pppsByTransaction.keySet());
+
+        logger.info("Detected {} changed and {} removed machines", changedTransactions.size(), removedTransactions.size());
+        return new PppChangeSet(false, ppps, changedTransactions, removedTransactions,
+                pppsByTransaction, fingerprints, referenceData);
+    }
+
+    // Вызывается после того, как изменения применены к кэшу
+    public void commit(PppChangeSet changeSet) {
+        committed = changeSet;
+    }
+
+    public void reset() {
+        committed = null;
+    }
+}
@@ -0,0 +1,86 @@
+package back3.project.service;
+
+import back3.project.entity.Ppp;
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.repository.OperationRow;
+import back3.project.repository.StageAggregate;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Данные, загруженные одним read-only запросом для расчёта /api/ppp.
+ * Операции сгруппированы в памяти по transaction и stage_ppp, чтобы агрегация
+ * не обращалась к базе для каждого станка и этапа. Границы этапов посчитаны в базе
+ * (StageAggregate), строки операций — компактные OperationRow, а не сущности.
+ */
+@Getter
+public class PppDataSnapshot {
+
+    private final List<Ppp> ppps;
+    private final Map<String, Map<String, List<OperationRow>>> operationsByTransactionAndStage;
+    private final Map<String, List<OperationRow>> operationsByTransaction;
+    private final Map<String, Map<String, StageAggregate>> stageAggregates;
+    private final ReferenceData referenceData;
+    private final ProblemsNormHoursIndex problemsNormHours;
+    private final long totalPpps; // Всего станков под фильтром (при постраничной выборке больше ppps.size())
+
+    public PppDataSnapshot(List<Ppp> ppps,
+                           Map<String, Map<String, List<OperationRow>>> operationsByTransactionAndStage,
+                           Map<String, List<OperationRow>> operationsByTransaction,
+                           Map<String, Map<String, StageAggregate>> stageAggregates,
+                           ReferenceData referenceData,
+                           ProblemsNormHoursIndex problemsNormHours,
+                           long totalPpps) {
+        this.ppps = ppps;
+        this.operationsByTransactionAndStage = operationsByTransactionAndStage;
+        this.operationsByTransaction = operationsByTransaction;
+        this.stageAggregates = stageAggregates;
+        this.referenceData = referenceData;
+        this.problemsNormHours = problemsNormHours;
+        this.totalPpps = totalPpps;
+    }
+
+    // Операции с заполненным employee для станка и этапа, в порядке id
+    public List<OperationRow> getStageOperations(String transaction, String operationType) {
+        Map<String, List<OperationRow>> byStage = operationsByTransactionAndStage.get(transaction);
+        if (byStage == null) {
+            return Collections.emptyList();
+        }
+        return byStage.getOrDefault(operationType, Collections.emptyList());
+    }
+
+    // Агрегаты этапа из базы; null — у этапа нет операций с заполненным employee
+    public StageAggregate getStageAggregate(String transaction, String operationType) {
+        Map<String, StageAggregate> byStage = stageAggregates.get(transaction);
+        return byStage != null ? byStage.get(operationType) : null;
+    }
+
+    // Все операции станка с заполненным employee (используются для расчёта опций)
+    public List<OperationRow> getTransactionOperations(String transaction) {
+        return operationsByTransaction.getOrDefault(transaction, Collections.emptyList());
+    }
+
+    public Optional<PppNorms> findNorm(String operationNormName) {
+        return referenceData.findNorm(operationNormName);
+    }
+
+    public Double getNormHours(String operationNormName) {
+        return referenceData.getNormHours(operationNormName);
+    }
+
+    public Optional<PppEmployees> findEmployee(Long employeeId) {
+        return referenceData.findEmployee(employeeId);
+    }
+
+    public double getProblemsNormHours(String transaction, Long employeeId) {
+        if (employeeId == null) {
+            return 0.0;
+        }
+        return problemsNormHours.getNormHours(transaction, employeeId);
+    }
+}
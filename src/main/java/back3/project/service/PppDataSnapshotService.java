@@ -0,0 +1,191 @@
+package back3.project.service;
+
+import back3.project.dto.PppFilter;
+import back3.project.entity.Ppp;
+import back3.project.repository.OperationRow;
+import back3.project.repository.PppOperationRepository;
+import back3.project.repository.PppRepository;
+import back3.project.repository.PppSpecifications;
+import back3.project.repository.ProblemsNormHoursSum;
+import back3.project.repository.ProblemsRepository;
+import back3.project.repository.StageAggregate;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class PppDataSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PppDataSnapshotService.class);
+
+    private final PppRepository pppRepository;
+    private final PppOperationRepository pppOperationRepository;
+    private final ProblemsRepository problemsRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final PipelineMetrics pipelineMetrics;
+
+    // Ограничение на размер IN (...) в одном запросе; тем же размером частей пишется /api/ppp/stream
+    public static final int IN_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Загружаем plan_ppp, work_report_ppp и faults в одной транзакции; operation_norm и specialization берём из кэша
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshot() {
+        logger.info("loadSnapshot() called");
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> {
+            List<Ppp> ppps = pppRepository.findAll();
+            List<OperationRow> operations = pppOperationRepository.findRowsWithEmployee();
+            List<StageAggregate> stageAggregates = pppOperationRepository.aggregateStages();
+            // Из faults нужны только суммы norm_hours, считаем их в базе
+            List<ProblemsNormHoursSum> problemsSums = problemsRepository.sumNormHoursByTransactionAndEmployee();
+
+            return buildSnapshot(ppps, operations, stageAggregates, problemsSums, ppps.size());
+        });
+    }
+
+    // Станки под фильтром (условия уходят в запрос к plan_ppp) и только их операции
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshot(PppFilter filter) {
+        logger.info("loadSnapshot() called with filter: {}", filter);
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> {
+            Page<Ppp> ppps = findPppsFor(filter);
+            return loadSnapshotFor(ppps.getContent(), ppps.getTotalElements());
+        });
+    }
+
+    // Только строки plan_ppp под фильтром (страница, если задана), без операций; без фильтра — весь парк
+    @Transactional(readOnly = true)
+    public Page<Ppp> findPpps(PppFilter filter) {
+        logger.info("findPpps() called with filter: {}", filter);
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH,
+                () -> filter.isEmpty() ? new PageImpl<>(pppRepository.findAll()) : findPppsFor(filter));
+    }
+
+    private Page<Ppp> findPppsFor(PppFilter filter) {
+        Specification<Ppp> specification = PppSpecifications.byFilter(filter);
+        if (!filter.isPaged()) {
+            return new PageImpl<>(pppRepository.findAll(specification));
+        }
+        int page = filter.getPage() != null ? filter.getPage() : 0;
+        int size = filter.getSize() != null ? filter.getSize() : DEFAULT_PAGE_SIZE;
+        return pppRepository.findAll(specification, PageRequest.of(page, size, Sort.by("transaction")));
+    }
+
+    // Только станки с указанным статусом и их операции
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshotForStatus(String status) {
+        logger.info("loadSnapshotForStatus() called for status: {}", status);
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> loadSnapshotFor(pppRepository.findByStatus(status)));
+    }
+
+    // Только станки, у которых есть этап, начатый в [from, to); plan_ppp не читается, ppps пустой
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshotForStagesStartedBetween(Collection<String> stages, LocalDateTime from, LocalDateTime to) {
+        logger.info("loadSnapshotForStagesStartedBetween() called for [{}, {})", from, to);
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> {
+            List<String> transactions = new ArrayList<>(new LinkedHashSet<>(
+                    pppOperationRepository.findTransactionsWithStageStartedBetween(stages, from, to)));
+            return loadSnapshotFor(List.of(), transactions, 0);
+        });
+    }
+
+    // Операции и faults станков по номерам transaction; plan_ppp не читается
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshotForTransactions(Collection<String> transactions) {
+        logger.info("loadSnapshotForTransactions() called for {} transactions", transactions.size());
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> loadSnapshotFor(List.of(), new ArrayList<>(transactions), 0));
+    }
+
+    // Операции и faults только для переданных станков
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PppDataSnapshot loadSnapshotForPpps(List<Ppp> ppps) {
+        logger.info("loadSnapshotForPpps() called for {} ppps", ppps.size());
+        return pipelineMetrics.time(PipelineMetrics.DB_FETCH, () -> loadSnapshotFor(ppps));
+    }
+
+    private PppDataSnapshot loadSnapshotFor(List<Ppp> ppps) {
+        return loadSnapshotFor(ppps, ppps.size());
+    }
+
+    private PppDataSnapshot loadSnapshotFor(List<Ppp> ppps, long totalPpps) {
+        List<String> transactions = ppps.stream()
+                .map(Ppp::getTransaction)
+                .toList();
+        return loadSnapshotFor(ppps, transactions, totalPpps);
+    }
+
+    private PppDataSnapshot loadSnapshotFor(List<Ppp> ppps, List<String> transactions, long totalPpps) {
+
+        List<OperationRow> operations = new ArrayList<>();
+        List<StageAggregate> stageAggregates = new ArrayList<>();
+        List<ProblemsNormHoursSum> problemsSums = new ArrayList<>();
+        for (int from = 0; from < transactions.size(); from += IN_CHUNK_SIZE) {
+            List<String> chunk = transactions.subList(from, Math.min(from + IN_CHUNK_SIZE, transactions.size()));
+            operations.addAll(pppOperationRepository.findRowsWithEmployeeByTransactionIn(chunk));
+            stageAggregates.addAll(pppOperationRepository.aggregateStagesByTransactionIn(chunk));
+            problemsSums.addAll(problemsRepository.sumNormHoursByTransactionInAndEmployee(chunk));
+        }
+        // Чанки идут в своём порядке, возвращаем общий порядок по id
+        operations.sort(Comparator.comparing(OperationRow::getOperationId));
+
+        return buildSnapshot(ppps, operations, stageAggregates, problemsSums, totalPpps);
+    }
+
+    private PppDataSnapshot buildSnapshot(List<Ppp> ppps, List<OperationRow> operations, List<StageAggregate> stageAggregates,
+                                          List<ProblemsNormHoursSum> problemsSums, long totalPpps) {
+        Map<String, Map<String, List<OperationRow>>> operationsByTransactionAndStage = new LinkedHashMap<>();
+        Map<String, List<OperationRow>> operationsByTransaction = new HashMap<>();
+        for (OperationRow operation : operations) {
+            if (operation.getTransaction() == null) {
+                continue;
+            }
+            operationsByTransaction
+                    .computeIfAbsent(operation.getTransaction(), key -> new ArrayList<>())
+                    .add(operation);
+            if (operation.getOperationType() != null) {
+                operationsByTransactionAndStage
+                        .computeIfAbsent(operation.getTransaction(), key -> new HashMap<>())
+                        .computeIfAbsent(operation.getOperationType(), key -> new ArrayList<>())
+                        .add(operation);
+            }
+        }
+
+        Map<String, Map<String, StageAggregate>> stageAggregatesByTransaction = new HashMap<>();
+        for (StageAggregate stageAggregate : stageAggregates) {
+            stageAggregatesByTransaction
+                    .computeIfAbsent(stageAggregate.getTransaction(), key -> new HashMap<>())
+                    .put(stageAggregate.getOperationType(), stageAggregate);
+        }
+
+        ReferenceData referenceData = referenceDataCache.get();
+        ProblemsNormHoursIndex problemsNormHours = ProblemsNormHoursIndex.build(problemsSums);
+
+        pipelineMetrics.recordRows("plan_ppp", ppps.size());
+        pipelineMetrics.recordRows("work_report_ppp", operations.size());
+        pipelineMetrics.recordRows("work_report_ppp_stages", stageAggregates.size());
+        pipelineMetrics.recordRows("faults", problemsSums.size());
+        logger.info("Snapshot loaded: {} ppps, {} operations, {} norms, {} employees",
+                ppps.size(), operations.size(), referenceData.getNormsCount(), referenceData.getEmployeesCount());
+        return new PppDataSnapshot(ppps, operationsByTransactionAndStage, operationsByTransaction, stageAggregatesByTransaction,
+                referenceData, problemsNormHours, totalPpps);
+    }
+}
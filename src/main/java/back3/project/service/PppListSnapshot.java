@@ -0,0 +1,27 @@
+package back3.project.service;
+
+import back3.project.dto.PppListDto;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Готовый ответ /api/ppp: DTO, уже сериализованный JSON и его ETag.
+ */
+@Getter
+public class PppListSnapshot {
+
+    private final PppListDto pppListDto;
+    private final byte[] json;
+    private final String etag;
+    private final long version;
+    private final Instant builtAt;
+
+    public PppListSnapshot(PppListDto pppListDto, byte[] json, String etag, long version, Instant builtAt) {
+        this.pppListDto = pppListDto;
+        this.json = json;
+        this.etag = etag;
+        this.version = version;
+        this.builtAt = builtAt;
+    }
+}
@@ -0,0 +1,210 @@
+package back3.project.service;
+
+import back3.project.dto.PppDto;
+import back3.project.dto.PppListDto;
+import back3.project.entity.Ppp;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Предрассчитанный ответ /api/ppp. Прогревается при старте и пересчитывается в фоне
+ * раз в ppp.snapshot.refresh-interval; клиенты получают его из памяти.
+ * Между полными пересчётами обновляются только станки, найденные PppChangeTracker.
+ * После каждого обновления публикуется PppSnapshotRefreshedEvent.
+ */
+@Service
+@RequiredArgsConstructor
+public class PppListSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PppListSnapshotService.class);
+
+    private final PppService pppService;
+    private final PppChangeTracker pppChangeTracker;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${ppp.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ppp.snapshot.full-refresh-every:60}")
+    private int fullRefreshEvery;
+
+    private volatile PppListSnapshot current;
+    private int refreshesSinceFull;
+    private Timer refreshTimer;
+    private Counter recomputedMachines;
+
+    @PostConstruct
+    void registerMetrics() {
+        refreshTimer = Timer.builder("ppp.snapshot.refresh")
+                .description("Время пересчёта снимка /api/ppp")
+                .register(meterRegistry);
+        recomputedMachines = Counter.builder("ppp.snapshot.recomputed.machines")
+                .description("Число пересчитанных станков при обновлении снимка")
+                .register(meterRegistry);
+        Gauge.builder("ppp.snapshot.age", this, PppListSnapshotService::getSnapshotAgeSeconds)
+                .description("Возраст снимка /api/ppp в секундах")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("ppp.snapshot.version", this, service -> service.current != null ? service.current.getVersion() : 0)
+                .description("Версия снимка /api/ppp")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(initialDelayString = "${ppp.snapshot.initial-delay:PT0S}", fixedDelayString = "${ppp.snapshot.refresh-interval:PT1M}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Оставляем предыдущий снимок, следующий запуск попробует снова
+            logger.error("Failed to refresh /api/ppp snapshot", e);
+        }
+    }
+
+    public PppListSnapshot getSnapshot() {
+        PppListSnapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = current;
+                if (snapshot == null) {
+                    snapshot = refresh();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    public synchronized PppListSnapshot refresh() {
+        logger.info("Refreshing /api/ppp snapshot");
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        PppListSnapshot previous = current;
+        // Периодически пересчитываем всё целиком, чтобы не зависеть только от агрегатов изменений
+        if (previous == null || ++refreshesSinceFull >= fullRefreshEvery) {
+            pppChangeTracker.reset();
+        }
+        PppChangeSet changes = pppChangeTracker.detectChanges();
+
+        PppListSnapshot snapshot;
+        if (previous != null && !changes.hasChanges()) {
+            snapshot = new PppListSnapshot(previous.getPppListDto(), previous.getJson(), previous.getEtag(), previous.getVersion(), Instant.now());
+        } else {
+            PppListDto pppListDto;
+            if (changes.isFullRefresh()) {
+                pppListDto = pppService.getAllPpps();
+                refreshesSinceFull = 0;
+                recomputedMachines.increment(pppListDto.getPpps().size());
+            } else {
+                pppListDto = applyChanges(previous.getPppListDto(), changes);
+            }
+            snapshot = buildSnapshot(previous, pppListDto);
+        }
+        current = snapshot;
+        pppChangeTracker.commit(changes);
+
+        long nanos = sample.stop(refreshTimer);
+        logger.info("/api/ppp snapshot version {} built in {} ms ({} bytes)",
+                snapshot.getVersion(), Duration.ofNanos(nanos).toMillis(), snapshot.getJson().length);
+        eventPublisher.publishEvent(new PppSnapshotRefreshedEvent(previous, snapshot));
+        return snapshot;
+    }
+
+    // Пересчитываем только изменившиеся станки и вставляем их на место в прежний список
+    private PppListDto applyChanges(PppListDto previousList, PppChangeSet changes) {
+        Map<String, PppDto> previousByTransaction = new HashMap<>();
+        for (PppDto pppDto : previousList.getPpps()) {
+            previousByTransaction.put(pppDto.getTransaction(), pppDto);
+        }
+
+        List<Ppp> changedPpps = changes.getPpps().stream()
+                .filter(ppp -> changes.getChangedTransactions().contains(ppp.getTransaction())
+                        || !previousByTransaction.containsKey(ppp.getTransaction()))
+                .toList();
+        Map<String, PppDto> recomputed = new HashMap<>();
+        for (PppDto pppDto : pppService.buildPppDtos(changedPpps)) {
+            recomputed.put(pppDto.getTransaction(), pppDto);
+        }
+        recomputedMachines.increment(recomputed.size());
+
+        List<PppDto> pppDtos = new ArrayList<>(changes.getPpps().size());
+        for (Ppp ppp : changes.getPpps()) {
+            PppDto pppDto = recomputed.get(ppp.getTransaction());
+            pppDtos.add(pppDto != null ? pppDto : previousByTransaction.get(ppp.getTransaction()));
+        }
+        logger.info("Recomputed {} of {} machines", recomputed.size(), pppDtos.size());
+
+        PppListDto pppListDto = new PppListDto();
+        pppListDto.setPpps(pppDtos);
+        return pppListDto;
+    }
+
+    private PppListSnapshot buildSnapshot(PppListSnapshot previous, PppListDto pppListDto) {
+        byte[] json = serialize(pppListDto);
+        if (previous != null && Arrays.equals(previous.getJson(), json)) {
+            // Данные не изменились: версия и ETag остаются прежними, клиенты продолжают получать 304
+            return new PppListSnapshot(previous.getPppListDto(), previous.getJson(), previous.getEtag(), previous.getVersion(), Instant.now());
+        }
+        long version = previous != null ? previous.getVersion() + 1 : 1;
+        return new PppListSnapshot(pppListDto, json, etag(json), version, Instant.now());
+    }
+
+    private byte[] serialize(PppListDto pppListDto) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return objectMapper.writeValueAsBytes(pppListDto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize /api/ppp snapshot", e);
+        } finally {
+            sample.stop(pipelineMetrics.timer(PipelineMetrics.SERIALIZATION));
+        }
+    }
+
+    private String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private double getSnapshotAgeSeconds() {
+        PppListSnapshot snapshot = current;
+        if (snapshot == null) {
+            return Double.NaN;
+        }
+        return Duration.between(snapshot.getBuiltAt(), Instant.now()).toMillis() / 1000.0;
+    }
+}
@@ -2,84 +2,38 @@ package back3.project.service;
 
 import back3.project.dto.*;
 import back3.project.entity.Ppp;
-import back3.project.repository.PppRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.DayOfWeek;
-import java.time.Duration;
-import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PppService {
 
-    private final PppRepository pppRepository;
+    private final PppDataSnapshotService pppDataSnapshotService;
     private final OperationService operationService;
     private final PppConversionService pppConversionService;
     private final InterOperationTimeService interOperationTimeService;
-    private final ForecastDateService forecastDateService;
-    private final ForecastDateStartService forecastDateStartService;// Inject the new service
+    private final ForecastEngine forecastEngine;
+    private final PppAggregationExecutor pppAggregationExecutor;
+    private final PipelineMetrics pipelineMetrics;
     private static final Logger logger = LoggerFactory.getLogger(PppService.class);
 
-    private static final LocalTime WORKDAY_START = LocalTime.of(8, 30);
-    private static final LocalTime WORKDAY_END = LocalTime.of(17, 30);
-
     public PppListDto getAllPpps() {
         logger.info("getAllPpps() called");
-        List<Ppp> ppps = pppRepository.findAll();
-
-        List<PppDto> pppDtos = ppps.stream()
-                .map(ppp -> {
-                    PppDto pppDto = pppConversionService.convertToPppDto(ppp);
-                    List<OperationDto> operationDtos = operationService.getAggregatedOperations(ppp.getTransaction());
-                    for (OperationDto operationDto : operationDtos) {
-                        if (operationDto != null) {
-                            operationDto.setIsTimeExceedsNorm(operationService.isTimeExceedsNorm(operationDto));
-                        } else {
-                            logger.warn("OperationDto is null, skipping setIsTimeExceedsNorm");
-                        }
-                    }
-                    pppDto.setOperations(operationDtos);
-
-                    List<OperationTime> operationTimes = interOperationTimeService.calculateTimeDifferences(operationDtos);
-                    pppDto.setOperationTimes(operationTimes);
-
-                    String totalDurationSum = calculateTotalDurationSum(operationDtos);
-                    pppDto.setTotalDurationSum(totalDurationSum);
-
-                    Double totalProblemsNormHours = calculateTotalProblemsNormHours(operationDtos);
-                    pppDto.setTotalProblemsNormHours(totalProblemsNormHours);
-
-                    pppDto.setCompletionPercentage(calculateCompletionPercentage(ppp.getPlanPpp(), totalDurationSum));
-
-                    String positiveInterOperationTimeSum = calculatePositiveInterOperationTimeSum(operationTimes);
-                    pppDto.setPositiveInterOperationTimeSum(positiveInterOperationTimeSum);
-
-                    String totalSum = calculateAndFormatTotalSum(positiveInterOperationTimeSum, totalDurationSum, totalProblemsNormHours);
-                    pppDto.setTotalSum(totalSum);
-
-                    LocalDate planDateStart = ppp.getPlanDateStart();
-                    List<ForecastDateDto> forecastDatesPlan = forecastDateService.calculateForecastDates(planDateStart, operationDtos);
-                    pppDto.setForecastDatesPlan(forecastDatesPlan);
-
-                    List<ForecastDateDto> forecastDatesStart = forecastDateStartService.calculateForecastDates(ppp.getFactDateStart(), ppp.getForecastDateStart(), operationDtos);
-                    pppDto.setForecastDatesStart(forecastDatesStart);
-
-                    pppDto.setExtendedTransportPositionDate(calculateExtendedTransportPositionDate(forecastDatesStart, operationDtos));
-                    pppDto.setExtendedTransportPositionDatePlan(calculateExtendedTransportPositionDatePlan(forecastDatesPlan, operationDtos));
+        // Все таблицы читаются один раз, дальше станки собираются из памяти
+        PppDataSnapshot snapshot = pppDataSnapshotService.loadSnapshot();
+        List<Ppp> ppps = snapshot.getPpps();
 
-                    return pppDto;
-                })
-                .collect(Collectors.toList());
+        List<PppDto> pppDtos = pppAggregationExecutor.aggregate(ppps, ppp -> buildPppDto(ppp, snapshot), this::buildFailedPppDto);
 
         // Get employee statistics
         // Create PppListDto and populate it
@@ -89,198 +43,195 @@ public class PppService {
         return pppListDto;
     }
 
-    private Double calculateCompletionPercentage(Long planPpp, String totalDurationSum) {
-        if (planPpp == null || totalDurationSum == null || totalDurationSum.isEmpty() || totalDurationSum.equals("00:00:00")) {
-            return 0.0;
-        }
-        // Преобразуем totalDurationSum in hours
-        double totalDurationHours = parseTotalDurationSumToHours(totalDurationSum);
-        // Убедитесь, что totalDurationHours также не равно нулю, чтобы избежать деления на ноль.
-        if (totalDurationHours == 0) {
-            return 0.0;
-        }
-        // отношение фактического времени к плановому
-        double percentage = ((double) planPpp * 8) / totalDurationHours * 100;
-        return (double) Math.round(percentage);
+    // Отбор станков на стороне базы: агрегируются только станки под фильтром (и только текущая страница).
+    // Без фильтра считается весь парк — так отдаются запросы с fields=, которые не берутся из снимка
+    public PppListDto getPpps(PppFilter filter, PppFields fields) {
+        logger.info("getPpps() called with filter: {}, fields: {}", filter, fields);
+        PppDataSnapshot snapshot = loadSnapshot(filter);
+        List<Ppp> ppps = snapshot.getPpps();
+
+        List<PppDto> pppDtos = pppAggregationExecutor.aggregate(ppps, ppp -> buildPppDto(ppp, snapshot, fields), this::buildFailedPppDto);
+
+        PppListDto pppListDto = new PppListDto();
+        pppListDto.setPpps(pppDtos);
+        pppListDto.setTotalCount(snapshot.getTotalPpps());
+        logger.info("Returning {} of {} filtered PPPs", pppDtos.size(), snapshot.getTotalPpps());
+        return pppListDto;
     }
 
-    // Переводим totalDurationSum in hours
-    private double parseTotalDurationSumToHours(String totalDurationSum) {
-        String[] parts = totalDurationSum.split(":");
-        if (parts.length != 3) {
-            // Если формат строки неправильный, возвращаем 0.0 чтоб избежать ошибки
-            System.err.println("Неправильный формат времени: " + totalDurationSum);
-            return 0.0;
-        }
-        try {
-            long hours = Long.parseLong(parts[0]);
-            long minutes = Long.parseLong(parts[1]);
-            long seconds = Long.parseLong(parts[2]);
-            return hours + (minutes / 60.0) + (seconds / 3600.0);
-        } catch (NumberFormatException e) {
-            System.err.println("Ошибка при парсинге времени: " + totalDurationSum);
-            return 0.0;
-        }
+    // Без параметров — весь парк, иначе только станки под фильтром
+    private PppDataSnapshot loadSnapshot(PppFilter filter) {
+        return filter.isEmpty() ? pppDataSnapshotService.loadSnapshot() : pppDataSnapshotService.loadSnapshot(filter);
     }
 
-    // Считаем totalProblemsNormHours
-    private Double calculateTotalProblemsNormHours(List<OperationDto> operationDtos) {
-        if (operationDtos == null || operationDtos.isEmpty()) {
-            return 0.0;
-        }
+    // Станки для потоковой выдачи: только строки plan_ppp, операции читаются частями через loadSnapshotForPpps
+    public Page<Ppp> findPpps(PppFilter filter) {
+        return pppDataSnapshotService.findPpps(filter);
+    }
 
-        return operationDtos.stream()
-                .map(OperationDto::getProblemsNormHours)
-                .filter(Objects::nonNull)
-                .reduce(0.0, Double::sum);
+    public PppDataSnapshot loadSnapshotForPpps(List<Ppp> ppps) {
+        return pppDataSnapshotService.loadSnapshotForPpps(ppps);
     }
 
-    private String calculateTotalDurationSum(List<OperationDto> operationDtos) {
+    // Один станок для потоковой выдачи; ошибка попадает в поле error, поток не прерывается
+    public PppDto buildPppDtoOrFailed(Ppp ppp, PppDataSnapshot snapshot, PppFields fields) {
+        try {
+            return buildPppDto(ppp, snapshot, fields);
+        } catch (Exception e) {
+            logger.error("Failed to aggregate ppp {}", ppp.getTransaction(), e);
+            return buildFailedPppDto(ppp, e);
+        }
+    }
 
-        if (operationDtos == null || operationDtos.isEmpty()) {
-            return "00:00:00";
+    // Пересчёт только переданных станков (инкрементальное обновление снимка)
+    public List<PppDto> buildPppDtos(List<Ppp> ppps) {
+        logger.info("buildPppDtos() called for {} ppps", ppps.size());
+        if (ppps.isEmpty()) {
+            return List.of();
         }
+        PppDataSnapshot snapshot = pppDataSnapshotService.loadSnapshotForPpps(ppps);
+        return pppAggregationExecutor.aggregate(ppps, ppp -> buildPppDto(ppp, snapshot), this::buildFailedPppDto);
+    }
 
-        Duration totalDuration = operationDtos.stream()
-                .map(OperationDto::getTotalDuration)
-                .filter(Objects::nonNull)
-                .map(durationString -> {
-                    try {
-                        String[] parts = durationString.split(":");
-                        long hours = Long.parseLong(parts[0]);
-                        long minutes = Long.parseLong(parts[1]);
-                        long seconds = Long.parseLong(parts[2]);
-
-                        String formattedDurationString = String.format("PT%dH%dM%dS", hours, minutes, seconds);
-                        System.out.println("Attempting to parse duration string: " + formattedDurationString);
-
-                        return Duration.parse(formattedDurationString);
-
-                    } catch (DateTimeParseException | NumberFormatException e) {
-                        System.err.println("Error parsing duration string: " + durationString);
-                        System.err.println("Exception message: " + e.getMessage());
-                        return Duration.ZERO;
-                    }
-                })
-                .reduce(Duration.ZERO, Duration::plus);
-        long hours = totalDuration.toHours();
-        long minutes = totalDuration.toMinutesPart();
-        long seconds = totalDuration.toSecondsPart();
-
-        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    // Станок, который не удалось собрать: только идентификация и текст ошибки
+    private PppDto buildFailedPppDto(Ppp ppp, Exception e) {
+        PppDto pppDto = new PppDto();
+        pppDto.setTransaction(ppp.getTransaction());
+        pppDto.setStatus(ppp.getStatus());
+        pppDto.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        return pppDto;
     }
 
-    private LocalDate calculateExtendedTransportPositionDate(List<ForecastDateDto> forecastDates, List<OperationDto> operationDtos) {
-        return calculateExtendedTransportPositionDateInternal(forecastDates, operationDtos);
+    // Лёгкий путь для статистики: только completionPercentage станков с нужным статусом,
+    // без прогнозов и межоперационного времени
+    public Map<String, Double> calculateCompletionPercentages(String status) {
+        logger.info("calculateCompletionPercentages() called for status: {}", status);
+        PppDataSnapshot snapshot = pppDataSnapshotService.loadSnapshotForStatus(status);
+
+        Map<String, Double> completionPercentages = new LinkedHashMap<>();
+        for (Ppp ppp : snapshot.getPpps()) {
+            List<OperationDto> operationDtos = operationService.getAggregatedOperations(ppp.getTransaction(), snapshot);
+            long totalDurationSum = calculateTotalDurationSum(operationDtos);
+            completionPercentages.put(ppp.getTransaction(), calculateCompletionPercentage(ppp.getPlanPpp(), totalDurationSum));
+        }
+        return completionPercentages;
     }
 
-    private LocalDate calculateExtendedTransportPositionDatePlan(List<ForecastDateDto> forecastDates, List<OperationDto> operationDtos) {
-        return calculateExtendedTransportPositionDateInternal(forecastDates, operationDtos);
+    public PppDto buildPppDto(Ppp ppp, PppDataSnapshot snapshot) {
+        return buildPppDto(ppp, snapshot, PppFields.ALL);
     }
 
-    private LocalDate calculateExtendedTransportPositionDateInternal(List<ForecastDateDto> forecastDates, List<OperationDto> operationDtos) {
-        if (forecastDates == null || forecastDates.isEmpty()) {
-            return null;
+    // Этапы, результаты которых не попадают в запрошенные поля, не выполняются
+    public PppDto buildPppDto(Ppp ppp, PppDataSnapshot snapshot, PppFields fields) {
+        PppDto pppDto = pppConversionService.convertToPppDto(ppp);
+        if (!fields.needsOperations()) {
+            return pppDto;
+        }
+        List<OperationDto> operationDtos = pipelineMetrics.time(PipelineMetrics.OPERATIONS,
+                () -> operationService.getAggregatedOperations(ppp.getTransaction(), snapshot));
+        if (fields.includes(PppFields.OPERATIONS)) {
+            for (OperationDto operationDto : operationDtos) {
+                if (operationDto != null) {
+                    operationDto.setIsTimeExceedsNorm(operationService.isTimeExceedsNorm(operationDto));
+                } else {
+                    logger.warn("OperationDto is null, skipping setIsTimeExceedsNorm");
+                }
+            }
+            pppDto.setOperations(operationDtos);
         }
-        ForecastDateDto transportPositionDto = forecastDates.stream()
-                .filter(dto -> dto != null && "Транспортное положение".equals(dto.getOperationName()))
-                .findFirst()
-                .orElse(null);
 
-        if (transportPositionDto == null) {
-            return null;
-        }
+        long totalDurationSum = calculateTotalDurationSum(operationDtos);
+        pppDto.setTotalDurationSum(totalDurationSum);
 
-        LocalDate transportPositionDate = transportPositionDto.getForecastDate();
-        OperationDto transportPositionOperation = operationDtos.stream()
-                .filter(dto -> dto != null && "Транспортное положение".equals(dto.getOperationType()))
-                .findFirst()
-                .orElse(null);
+        Double totalProblemsNormHours = calculateTotalProblemsNormHours(operationDtos);
+        pppDto.setTotalProblemsNormHours(totalProblemsNormHours);
 
-        if (transportPositionOperation == null) {
-            return null;
-        }
+        pppDto.setCompletionPercentage(calculateCompletionPercentage(ppp.getPlanPpp(), totalDurationSum));
 
-        Double transportPositionNorm = transportPositionOperation.getOptionNorm();
-        LocalDateTime transportPositionDateTime = transportPositionDate.atTime(WORKDAY_START);
-        long daysToAdd = (long) Math.floor(transportPositionNorm / 8);
-        double remainingHours = transportPositionNorm % 8;
-        LocalDateTime extendedDateTime = transportPositionDateTime.plusDays(daysToAdd).plusHours((long) remainingHours);
-        extendedDateTime = adjustToWorkday(extendedDateTime);
+        if (fields.needsOperationTimes()) {
+            List<OperationTime> operationTimes = pipelineMetrics.time(PipelineMetrics.INTER_OPERATION,
+                    () -> interOperationTimeService.calculateTimeDifferences(operationDtos));
+            pppDto.setOperationTimes(operationTimes);
 
-        return extendedDateTime.toLocalDate();
-    }
+            long positiveInterOperationTimeSum = calculatePositiveInterOperationTimeSum(operationTimes);
+            pppDto.setPositiveInterOperationTimeSum(positiveInterOperationTimeSum);
 
-    private LocalDateTime adjustToWorkday(LocalDateTime dateTime) {
-        if (dateTime.toLocalTime().isAfter(WORKDAY_END)) {
-            long diffBetweenEndWorkAndCurrent = Duration.between(dateTime.toLocalTime(), WORKDAY_END).toHours();
-            dateTime = dateTime.plusDays(1).with(WORKDAY_START);
-            dateTime = dateTime.plusHours(diffBetweenEndWorkAndCurrent);
+            pppDto.setTotalSum(calculateTotalSum(positiveInterOperationTimeSum, totalDurationSum, totalProblemsNormHours));
         }
 
-        while (dateTime.getDayOfWeek() == DayOfWeek.SATURDAY || dateTime.getDayOfWeek() == DayOfWeek.SUNDAY) {
-            dateTime = dateTime.plusDays(1).with(WORKDAY_START);
+        if (fields.needsForecastPlan() || fields.needsForecastStart()) {
+            // Обе цепочки прогнозов за один проход; ненужная не считается
+            LocalDate startDate = ppp.getFactDateStart() != null ? ppp.getFactDateStart() : ppp.getForecastDateStart();
+            ForecastResult forecast = pipelineMetrics.time(PipelineMetrics.FORECAST, () -> forecastEngine.forecast(
+                    fields.needsForecastPlan() ? ppp.getPlanDateStart() : null,
+                    fields.needsForecastStart() ? startDate : null,
+                    operationDtos));
+            pppDto.setForecastDatesPlan(forecast.getForecastDatesPlan());
+            pppDto.setExtendedTransportPositionDatePlan(forecast.getExtendedTransportPositionDatePlan());
+            pppDto.setForecastDatesStart(forecast.getForecastDatesStart());
+            pppDto.setExtendedTransportPositionDate(forecast.getExtendedTransportPositionDate());
         }
-        return dateTime;
+
+        return pppDto;
     }
 
-    private String calculatePositiveInterOperationTimeSum(List<OperationTime> operationTimes) {
-        if (operationTimes == null || operationTimes.isEmpty()) {
-            return "00:00:00";
-        }
-        long totalSeconds = 0;       //Используем Long для хранения общего количества секунд
-        for (OperationTime operationTime : operationTimes) {
-            if (operationTime == null) continue;                 //Пропускаем если operationTime == null
-            String timeDifference = operationTime.getTimeDifference();  //Получаем строку timeDifference
-            if (timeDifference == null) continue;              //Пропускаем если  timeDifference == null
-            long seconds = parseToSeconds(timeDifference);                    //Получаем секунды из Duration
-            if (seconds > 0) {         //Суммируем общее количество секунд
-                totalSeconds += seconds;
-            }
+    private Double calculateCompletionPercentage(Long planPpp, long totalDurationSum) {
+        if (planPpp == null || totalDurationSum == 0) {
+            return 0.0;
         }
-        return formatTime(totalSeconds);
+        double totalDurationHours = totalDurationSum / 3600.0;
+        // отношение фактического времени к плановому
+        double percentage = ((double) planPpp * 8) / totalDurationHours * 100;
+        return (double) Math.round(percentage);
     }
 
-    private long parseToSeconds(String time) {
-        String[] parts = time.split(":");
-        if (parts.length != 3) {
-            return 0;
-        }
-        try {
-            long hours = Long.parseLong(parts[0]);
-            long minutes = Long.parseLong(parts[1]);
-            long seconds = Long.parseLong(parts[2]);
-            return hours * 3600 + minutes * 60 + seconds;
-        } catch (NumberFormatException e) {
-            return 0;
+    // Считаем totalProblemsNormHours
+    private Double calculateTotalProblemsNormHours(List<OperationDto> operationDtos) {
+        if (operationDtos == null || operationDtos.isEmpty()) {
+            return 0.0;
         }
-    }
 
-   private String formatTime(long totalSeconds) {
-        long hours = totalSeconds / 3600;
-        long minutes = (totalSeconds % 3600) / 60;
-        long seconds = totalSeconds % 60;
-        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+        return operationDtos.stream()
+                .map(OperationDto::getProblemsNormHours)
+                .filter(Objects::nonNull)
+                .reduce(0.0, Double::sum);
     }
 
-      private String calculateAndFormatTotalSum(String positiveInterOperationTimeSum, String totalDurationSum, Double totalProblemsNormHours) {
+    // Сумма totalDuration этапов в секундах; незакрытые этапы (null) не учитываются
+    private long calculateTotalDurationSum(List<OperationDto> operationDtos) {
+        if (operationDtos == null || operationDtos.isEmpty()) {
+            return 0;
+        }
         long totalSeconds = 0;
-
-        // Складываем positiveInterOperationTimeSum
-        if (positiveInterOperationTimeSum != null && !positiveInterOperationTimeSum.isEmpty()) {
-            totalSeconds += parseToSeconds(positiveInterOperationTimeSum);
+        for (OperationDto operationDto : operationDtos) {
+            if (operationDto != null && operationDto.getTotalDuration() != null) {
+                totalSeconds += operationDto.getTotalDuration();
+            }
         }
+        return totalSeconds;
+    }
 
-        // Складываем totalDurationSum
-        if (totalDurationSum != null && !totalDurationSum.isEmpty()) {
-            totalSeconds += parseToSeconds(totalDurationSum);
+    private long calculatePositiveInterOperationTimeSum(List<OperationTime> operationTimes) {
+        if (operationTimes == null || operationTimes.isEmpty()) {
+            return 0;
         }
+        long totalSeconds = 0;
+        for (OperationTime operationTime : operationTimes) {
+            if (operationTime == null || operationTime.getTimeDifference() == null) continue;
+            long seconds = operationTime.getTimeDifference();
+            if (seconds > 0) {         // Суммируем только положительные промежутки
+                totalSeconds += seconds;
+            }
+        }
+        return totalSeconds;
+    }
 
-        // Складываем totalProblemsNormHours (convert to seconds)
+    // Межоперационное время + длительность этапов + нормы по проблемам (часы -> секунды)
+    private long calculateTotalSum(long positiveInterOperationTimeSum, long totalDurationSum, Double totalProblemsNormHours) {
+        long totalSeconds = positiveInterOperationTimeSum + totalDurationSum;
         if (totalProblemsNormHours != null) {
-            totalSeconds += (long) (totalProblemsNormHours * 3600);  // Предполагаем, что totalProblemsNormHours в часах
+            totalSeconds += (long) (totalProblemsNormHours * 3600);
         }
-
-        return formatTime(totalSeconds);
+        return totalSeconds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package back3.project.service;
+
+import lombok.Getter;
+
+/**
+ * Публикуется после каждого обновления снимка /api/ppp, в том числе без изменений
+ * (тогда версия прежняя). previous == null — первый снимок.
+ */
+@Getter
+public class PppSnapshotRefreshedEvent {
+
+    private final PppListSnapshot previous;
+    private final PppListSnapshot current;
+
+    public PppSnapshotRefreshedEvent(PppListSnapshot previous, PppListSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public boolean isChanged() {
+        return previous == null || previous.getVersion() != current.getVersion();
+    }
+}
@@ -0,0 +1,63 @@
+package back3.project.service;
+
+import back3.project.repository.ProblemsNormHoursSum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Суммы norm_hours из faults по (transaction, id_employee).
+ * Для каждого станка id сотрудников хранятся в отсортированном long[], поиск — бинарный, без упаковки в Long.
+ */
+public class ProblemsNormHoursIndex {
+
+    private final Map<String, long[]> employeeIdsByTransaction;
+    private final Map<String, double[]> normHoursByTransaction;
+
+    private ProblemsNormHoursIndex(Map<String, long[]> employeeIdsByTransaction, Map<String, double[]> normHoursByTransaction) {
+        this.employeeIdsByTransaction = employeeIdsByTransaction;
+        this.normHoursByTransaction = normHoursByTransaction;
+    }
+
+    public static ProblemsNormHoursIndex build(List<ProblemsNormHoursSum> sums) {
+        Map<String, List<ProblemsNormHoursSum>> byTransaction = new HashMap<>();
+        for (ProblemsNormHoursSum sum : sums) {
+            if (sum.getTransaction() == null || sum.getIdEmployee() == null) {
+                continue;
+            }
+            byTransaction.computeIfAbsent(sum.getTransaction(), key -> new ArrayList<>()).add(sum);
+        }
+
+        Map<String, long[]> employeeIdsByTransaction = new HashMap<>(byTransaction.size() * 2);
+        Map<String, double[]> normHoursByTransaction = new HashMap<>(byTransaction.size() * 2);
+        for (Map.Entry<String, List<ProblemsNormHoursSum>> entry : byTransaction.entrySet()) {
+            List<ProblemsNormHoursSum> rows = entry.getValue();
+            rows.sort((a, b) -> Long.compare(a.getIdEmployee(), b.getIdEmployee()));
+            long[] employeeIds = new long[rows.size()];
+            double[] normHours = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                employeeIds[i] = rows.get(i).getIdEmployee();
+                normHours[i] = rows.get(i).getNormHours() != null ? rows.get(i).getNormHours() : 0.0;
+            }
+            employeeIdsByTransaction.put(entry.getKey(), employeeIds);
+            normHoursByTransaction.put(entry.getKey(), normHours);
+        }
+        return new ProblemsNormHoursIndex(employeeIdsByTransaction, normHoursByTransaction);
+    }
+
+    public double getNormHours(String transaction, long employeeId) {
+        long[] employeeIds = employeeIdsByTransaction.get(transaction);
+        if (employeeIds == null) {
+            return 0.0;
+        }
+        int position = Arrays.binarySearch(employeeIds, employeeId);
+        return position >= 0 ? normHoursByTransaction.get(transaction)[position] : 0.0;
+    }
+
+    public int size() {
+        return normHoursByTransaction.size();
+    }
+}
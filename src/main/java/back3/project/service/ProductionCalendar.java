@@ -0,0 +1,328 @@
+package back3.project.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Производственный календарь: праздники, сокращённые предпраздничные дни и рабочие выходные.
+ * Для лет из файла календаря хранятся префиксные суммы рабочего времени по дням, поэтому
+ * рабочее время между двумя моментами и фонд за месяц/год считаются за O(1).
+ * Вне загруженных лет рабочими считаются будни (формула по целым неделям); для календаря
+ * из файла об этом пишется WARN — один раз на каждый такой год.
+ */
+@Component
+public class ProductionCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductionCalendar.class);
+
+    public static final LocalTime WORKDAY_START = LocalTime.of(8, 30);
+    public static final LocalTime WORKDAY_END = LocalTime.of(17, 30);
+
+    private static final int FULL_DAY_NORM_SECONDS = 8 * 3600;
+    private static final int SHORT_DAY_NORM_SECONDS = 7 * 3600;
+    private static final int LUNCH_SECONDS = 3600;   // окно 8:30–17:30 = 8 часов нормы + обед
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long WORKDAY_START_NANOS = WORKDAY_START.toNanoOfDay();
+
+    // Только суббота и воскресенье, без праздников
+    public static final ProductionCalendar WEEKENDS_ONLY = new ProductionCalendar(Map.of());
+
+    private final long firstEpochDay;     // первый день загруженного диапазона
+    private final int[] normSeconds;      // норма дня, 0 — нерабочий день
+    private final long[] normPrefix;      // normPrefix[i] — сумма норм дней [0, i)
+    private final long[] windowPrefix;    // то же для рабочего окна от 8:30 (норма + обед)
+
+    // Для календаря из файла запросы вне загруженных лет — ошибка данных, а не штатный режим
+    private boolean warnOutsideLoadedYears;
+    private final Set<Integer> warnedYears = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ProductionCalendar(@Value("${ppp.calendar.location:classpath:production-calendar.csv}") Resource resource) throws IOException {
+        this(parse(resource));
+        this.warnOutsideLoadedYears = true;
+        logger.info("Production calendar loaded from {}: {} days from {}", resource, normSeconds.length,
+                normSeconds.length > 0 ? LocalDate.ofEpochDay(firstEpochDay) : "-");
+        // Прогнозы уходят в следующий год: нужны текущий, следующий и все годы файла без пропусков
+        int currentYear = LocalDate.now().getYear();
+        int fromYear = normSeconds.length > 0 ? loadedYear(firstEpochDay) : currentYear;
+        int toYear = Math.max(currentYear + 1, loadedYear(firstEpochDay + normSeconds.length - 1));
+        Set<Integer> missingYears = new TreeSet<>();
+        for (int year = fromYear; year <= toYear; year++) {
+            if (!hasSpecialDays(year)) {
+                missingYears.add(year);
+            }
+        }
+        if (!missingYears.isEmpty()) {
+            logger.warn("Production calendar {} has no holidays for {}: only weekends will be non-working in these years",
+                    resource, missingYears);
+        }
+    }
+
+    // specialDays: дата -> норма дня в секундах (0 — праздник или перенесённый выходной)
+    ProductionCalendar(Map<LocalDate, Integer> specialDays) {
+        if (specialDays.isEmpty()) {
+            this.firstEpochDay = 0;
+            this.normSeconds = new int[0];
+        } else {
+            TreeMap<LocalDate, Integer> sorted = new TreeMap<>(specialDays);
+            LocalDate first = sorted.firstKey().withDayOfYear(1);
+            LocalDate last = sorted.lastKey().withDayOfYear(1).plusYears(1);
+            this.firstEpochDay = first.toEpochDay();
+            this.normSeconds = new int[(int) (last.toEpochDay() - firstEpochDay)];
+            for (int i = 0; i < normSeconds.length; i++) {
+                LocalDate date = LocalDate.ofEpochDay(firstEpochDay + i);
+                normSeconds[i] = specialDays.getOrDefault(date, isWeekend(date) ? 0 : FULL_DAY_NORM_SECONDS);
+            }
+        }
+        this.normPrefix = new long[normSeconds.length + 1];
+        this.windowPrefix = new long[normSeconds.length + 1];
+        for (int i = 0; i < normSeconds.length; i++) {
+            normPrefix[i + 1] = normPrefix[i] + normSeconds[i];
+            windowPrefix[i + 1] = windowPrefix[i] + windowSeconds(normSeconds[i]);
+        }
+    }
+
+    public boolean isWorkingDay(LocalDate date) {
+        return dayNormSeconds(date.toEpochDay()) > 0;
+    }
+
+    // Конец рабочего дня: 17:30, в сокращённый день раньше; для нерабочих дней — обычные 17:30
+    public LocalTime getWorkdayEnd(LocalDate date) {
+        int norm = dayNormSeconds(date.toEpochDay());
+        return norm > 0 ? WORKDAY_START.plusSeconds(windowSeconds(norm)) : WORKDAY_END;
+    }
+
+    // Пересечение [from, to) с рабочими окнами; для to раньше from — ноль
+    public Duration workingTimeBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(workingNanosBefore(to) - workingNanosBefore(from));
+    }
+
+    // Сумма норм рабочих дней в [fromInclusive, toExclusive), в секундах
+    public long normSecondsBetween(LocalDate fromInclusive, LocalDate toExclusive) {
+        if (!fromInclusive.isBefore(toExclusive)) {
+            return 0;
+        }
+        return normBefore(toExclusive.toEpochDay()) - normBefore(fromInclusive.toEpochDay());
+    }
+
+    // Фонд рабочего времени за месяц, в секундах
+    public long getWorkingHoursFund(int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return normSecondsBetween(yearMonth.atDay(1), yearMonth.plusMonths(1).atDay(1));
+    }
+
+    // Фонд рабочего времени за год, в секундах
+    public long getWorkingHoursFund(int year) {
+        return normSecondsBetween(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    /**
+     * Момент, когда будет выработано hours нормо-часов начиная с from: рабочие дни
+     * дают свою норму (8 ч, в сокращённый день меньше) начиная с 8:30. Ровно исчерпанный
+     * день переходит на 8:30 следующего рабочего дня. O(log n) внутри загруженных лет, O(1) вне их.
+     */
+    public LocalDateTime addNormHours(LocalDateTime from, double hours) {
+        return fromNormPosition(normPosition(from) + Math.round(hours * 3600));
+    }
+
+    /**
+     * Выработанная норма (в секундах) от начала отсчёта до момента. Позиции образуют
+     * непрерывную шкалу рабочего времени: разность позиций — нормо-секунды между моментами.
+     */
+    public long normPosition(LocalDateTime dateTime) {
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        long sinceStart = dateTime.toLocalTime().toSecondOfDay() - WORKDAY_START.toSecondOfDay();
+        return normBefore(epochDay) + Math.max(0, Math.min(sinceStart, dayNormSeconds(epochDay)));
+    }
+
+    // Момент, соответствующий позиции на шкале нормы; конец дня переходит на 8:30 следующего рабочего дня
+    public LocalDateTime fromNormPosition(long target) {
+        long epochDay;
+        long offset;
+        long lastEpochDay = firstEpochDay + normSeconds.length;
+        if (target < 0 || target >= normPrefix[normSeconds.length]) {
+            // Вне диапазона календаря — только будни по 8 часов
+            long base = target < 0 ? 0 : normPrefix[normSeconds.length];
+            long weekdayIndex = weekdaysBefore(target < 0 ? firstEpochDay : lastEpochDay)
+                    + Math.floorDiv(target - base, FULL_DAY_NORM_SECONDS);
+            epochDay = weekdayAt(weekdayIndex);
+            offset = Math.floorMod(target - base, FULL_DAY_NORM_SECONDS);
+            warnOutsideLoadedYears(epochDay);
+        } else {
+            // Последний день, с которого префикс не больше target: у него норма > target - префикс
+            int low = 0;
+            int high = normSeconds.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (normPrefix[mid] <= target) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            epochDay = firstEpochDay + low;
+            offset = target - normPrefix[low];
+        }
+        return LocalDate.ofEpochDay(epochDay).atTime(WORKDAY_START).plusSeconds(offset);
+    }
+
+    // Будние дни в [fromInclusive, toExclusive)
+    static long countWeekdays(LocalDate fromInclusive, LocalDate toExclusive) {
+        if (!fromInclusive.isBefore(toExclusive)) {
+            return 0;
+        }
+        return weekdaysBefore(toExclusive.toEpochDay()) - weekdaysBefore(fromInclusive.toEpochDay());
+    }
+
+    // Рабочее время (в наносекундах) от начала отсчёта до момента
+    private long workingNanosBefore(LocalDateTime dateTime) {
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        long windowNanos = windowSeconds(dayNormSeconds(epochDay)) * NANOS_PER_SECOND;
+        long sinceStart = dateTime.toLocalTime().toNanoOfDay() - WORKDAY_START_NANOS;
+        return windowBefore(epochDay) * NANOS_PER_SECOND + Math.max(0, Math.min(sinceStart, windowNanos));
+    }
+
+    private int dayNormSeconds(long epochDay) {
+        long index = epochDay - firstEpochDay;
+        if (index >= 0 && index < normSeconds.length) {
+            return normSeconds[(int) index];
+        }
+        warnOutsideLoadedYears(epochDay);
+        return isWeekend(LocalDate.ofEpochDay(epochDay)) ? 0 : FULL_DAY_NORM_SECONDS;
+    }
+
+    private long normBefore(long epochDay) {
+        return prefixBefore(epochDay, normPrefix, FULL_DAY_NORM_SECONDS);
+    }
+
+    private long windowBefore(long epochDay) {
+        return prefixBefore(epochDay, windowPrefix, FULL_DAY_NORM_SECONDS + LUNCH_SECONDS);
+    }
+
+    // Префиксная сумма внутри диапазона, снаружи — будни с полной нормой
+    private long prefixBefore(long epochDay, long[] prefix, long weekdaySeconds) {
+        long lastEpochDay = firstEpochDay + normSeconds.length;
+        if (epochDay < firstEpochDay) {
+            warnOutsideLoadedYears(epochDay);
+            return -(weekdaysBefore(firstEpochDay) - weekdaysBefore(epochDay)) * weekdaySeconds;
+        }
+        if (epochDay > lastEpochDay) {
+            warnOutsideLoadedYears(lastEpochDay);
+            return prefix[normSeconds.length] + (weekdaysBefore(epochDay) - weekdaysBefore(lastEpochDay)) * weekdaySeconds;
+        }
+        return prefix[(int) (epochDay - firstEpochDay)];
+    }
+
+    // Один WARN на год: вне файла праздники не учитываются и расчёт молча завысит рабочее время
+    private void warnOutsideLoadedYears(long epochDay) {
+        if (warnOutsideLoadedYears) {
+            int year = loadedYear(epochDay);
+            if (warnedYears.add(year)) {
+                logger.warn("Production calendar has no data for {}: holidays are ignored, only weekends are non-working. " +
+                        "Add the official calendar for {} to the calendar file", year, year);
+            }
+        }
+    }
+
+    private static int loadedYear(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).getYear();
+    }
+
+    // В году есть хотя бы один праздник или перенос; год вне файла или пропущенный внутри него — нет
+    private boolean hasSpecialDays(int year) {
+        long from = LocalDate.of(year, 1, 1).toEpochDay() - firstEpochDay;
+        long to = LocalDate.of(year + 1, 1, 1).toEpochDay() - firstEpochDay;
+        if (from < 0 || to > normSeconds.length) {
+            return false;
+        }
+        for (long i = from; i < to; i++) {
+            LocalDate date = LocalDate.ofEpochDay(firstEpochDay + i);
+            if (normSeconds[(int) i] != (isWeekend(date) ? 0 : FULL_DAY_NORM_SECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int windowSeconds(int normSeconds) {
+        return normSeconds > 0 ? normSeconds + LUNCH_SECONDS : 0;
+    }
+
+    // Число будних дней до epochDay (от фиксированной точки отсчёта, важна только разность)
+    private static long weekdaysBefore(long epochDay) {
+        long days = epochDay + 3; // 1970-01-01 — четверг, сдвигаем так, чтобы остаток 0 был понедельником
+        return Math.floorDiv(days, 7) * 5 + Math.min(Math.floorMod(days, 7), 5);
+    }
+
+    // Будний день с заданным номером weekdaysBefore (обратная к weekdaysBefore функция)
+    private static long weekdayAt(long weekdayIndex) {
+        long days = Math.floorDiv(weekdayIndex, 5) * 7 + Math.floorMod(weekdayIndex, 5);
+        return days - 3;
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+    }
+
+    // Строки "дата,тип[,часы]": HOLIDAY — нерабочий день, SHORT — сокращённый (по умолчанию 7 ч),
+    // WORKDAY — рабочий выходной (по умолчанию 8 ч). Пустые строки и строки с # пропускаются
+    private static Map<LocalDate, Integer> parse(Resource resource) throws IOException {
+        Map<LocalDate, Integer> specialDays = new TreeMap<>();
+        if (!resource.exists()) {
+            logger.warn("Production calendar {} not found, only weekends are non-working", resource);
+            return specialDays;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                try {
+                    LocalDate date = LocalDate.parse(parts[0].trim());
+                    String type = parts.length > 1 ? parts[1].trim() : "";
+                    Double hours = parts.length > 2 ? Double.valueOf(parts[2].trim()) : null;
+                    int norm = switch (type) {
+                        case "HOLIDAY" -> 0;
+                        case "SHORT" -> hours != null ? (int) (hours * 3600) : SHORT_DAY_NORM_SECONDS;
+                        case "WORKDAY" -> hours != null ? (int) (hours * 3600) : FULL_DAY_NORM_SECONDS;
+                        default -> throw new IllegalArgumentException("Unknown day type: " + type);
+                    };
+                    specialDays.put(date, norm);
+                } catch (DateTimeParseException | IllegalArgumentException e) {
+                    throw new IllegalStateException("Invalid production calendar line " + lineNumber + ": " + line, e);
+                }
+            }
+        }
+        return specialDays;
+    }
+}
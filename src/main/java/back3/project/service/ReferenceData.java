@@ -0,0 +1,82 @@
+package back3.project.service;
+
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Неизменяемая копия operation_norm и specialization с уже разобранными нормами.
+ * Обращения считаются в счётчики ReferenceDataCache: найдено / не найдено.
+ * Данные загружены целиком, поэтому «не найдено» — отсутствующий ключ, а не промах кэша.
+ */
+public class ReferenceData {
+
+    private final Map<String, PppNorms> normsByName;
+    private final Map<String, Double> normHoursByName;
+    private final Map<Long, PppEmployees> employeesById;
+    @Getter
+    private final Instant loadedAt;
+    private final LongAdder found;
+    private final LongAdder notFound;
+
+    ReferenceData(Map<String, PppNorms> normsByName,
+                  Map<String, Double> normHoursByName,
+                  Map<Long, PppEmployees> employeesById,
+                  Instant loadedAt,
+                  LongAdder found,
+                  LongAdder notFound) {
+        this.normsByName = normsByName;
+        this.normHoursByName = normHoursByName;
+        this.employeesById = employeesById;
+        this.loadedAt = loadedAt;
+        this.found = found;
+        this.notFound = notFound;
+    }
+
+    public Optional<PppNorms> findNorm(String operationNormName) {
+        return Optional.ofNullable(record(normsByName.get(operationNormName)));
+    }
+
+    // Норма в часах, разобранная при загрузке; null, если нормы нет или она не число
+    public Double getNormHours(String operationNormName) {
+        return record(normHoursByName.get(operationNormName));
+    }
+
+    public Optional<PppEmployees> findEmployee(Long employeeId) {
+        return Optional.ofNullable(record(employeesById.get(employeeId)));
+    }
+
+    public Collection<PppEmployees> getEmployees() {
+        return employeesById.values();
+    }
+
+    public int getNormsCount() {
+        return normsByName.size();
+    }
+
+    public int getEmployeesCount() {
+        return employeesById.size();
+    }
+
+    // Совпадают ли справочники по содержимому (без учёта времени загрузки)
+    public boolean hasSameContent(ReferenceData other) {
+        return other != null
+                && normsByName.equals(other.normsByName)
+                && employeesById.equals(other.employeesById);
+    }
+
+    private <T> T record(T value) {
+        if (value != null) {
+            found.increment();
+        } else {
+            notFound.increment();
+        }
+        return value;
+    }
+}
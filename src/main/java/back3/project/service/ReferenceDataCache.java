@@ -0,0 +1,106 @@
+package back3.project.service;
+
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.repository.PppEmployeesRepository;
+import back3.project.repository.PppNormsRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш справочников operation_norm и specialization. Таблицы маленькие и меняются редко,
+ * поэтому они целиком держатся в памяти и перечитываются по TTL или по явному refresh().
+ */
+@Service
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final PppNormsRepository pppNormsRepository;
+    private final PppEmployeesRepository pppEmployeesRepository;
+
+    @Value("${ppp.reference-cache.ttl:PT5M}")
+    private Duration ttl;
+
+    private final LongAdder found = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private volatile ReferenceData current;
+
+    // Текущие справочники; при истёкшем TTL перечитываются из базы
+    public ReferenceData get() {
+        ReferenceData data = current;
+        if (data == null || isExpired(data)) {
+            synchronized (this) {
+                data = current;
+                if (data == null) {
+                    return refresh();
+                }
+                if (isExpired(data)) {
+                    try {
+                        return refresh();
+                    } catch (Exception e) {
+                        logger.error("Failed to refresh reference data, keeping data loaded at {}", data.getLoadedAt(), e);
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    public synchronized ReferenceData refresh() {
+        logger.info("Refreshing reference data cache");
+        Map<String, PppNorms> normsByName = new HashMap<>();
+        Map<String, Double> normHoursByName = new HashMap<>();
+        for (PppNorms norm : pppNormsRepository.findAll()) {
+            normsByName.put(norm.getOperationNormName(), norm);
+            if (norm.getOperationNorm() == null) {
+                continue;
+            }
+            try {
+                normHoursByName.put(norm.getOperationNormName(), Double.parseDouble(norm.getOperationNorm()));
+            } catch (NumberFormatException e) {
+                logger.error("Could not convert operationNorm to a number for norm " + norm.getOperationNormName(), e);
+            }
+        }
+
+        Map<Long, PppEmployees> employeesById = new LinkedHashMap<>(); // сохраняем порядок выборки
+        for (PppEmployees employee : pppEmployeesRepository.findAll()) {
+            employeesById.put(employee.getEmployeesId(), employee);
+        }
+
+        ReferenceData data = new ReferenceData(normsByName, normHoursByName, employeesById, Instant.now(), found, notFound);
+        current = data;
+        refreshes.increment();
+        logger.info("Reference data cache loaded: {} norms, {} employees", normsByName.size(), employeesById.size());
+        return data;
+    }
+
+    public long getFound() {
+        return found.sum();
+    }
+
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    private boolean isExpired(ReferenceData data) {
+        return data.getLoadedAt().plus(ttl).isBefore(Instant.now());
+    }
+}
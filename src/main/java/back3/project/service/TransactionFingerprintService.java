@@ -0,0 +1,37 @@
+package back3.project.service;
+
+import back3.project.repository.PppOperationRepository;
+import back3.project.repository.ProblemsFingerprint;
+import back3.project.repository.ProblemsRepository;
+import back3.project.repository.TransactionFingerprint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение отпечатков станков для PppChangeTracker и EmployeePerformanceRollupService.
+ * Внутри транзакции вызывающего оба запроса видят одно состояние таблиц.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionFingerprintService {
+
+    private final PppOperationRepository pppOperationRepository;
+    private final ProblemsRepository problemsRepository;
+
+    public TransactionFingerprints load() {
+        Map<String, List<Object>> operations = new HashMap<>();
+        for (TransactionFingerprint fingerprint : pppOperationRepository.fingerprintByTransaction()) {
+            operations.put(fingerprint.getTransaction(), Arrays.asList(fingerprint.getRowCount(), fingerprint.getContentHash()));
+        }
+        Map<String, List<Object>> problems = new HashMap<>();
+        for (ProblemsFingerprint fingerprint : problemsRepository.fingerprintByTransaction()) {
+            problems.put(fingerprint.getTransaction(), Arrays.asList(fingerprint.getRowCount(), fingerprint.getContentHash()));
+        }
+        return new TransactionFingerprints(operations, problems);
+    }
+}
@@ -0,0 +1,44 @@
+package back3.project.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Отпечатки work_report_ppp и faults по станкам (число строк и md5 содержимого) на момент чтения.
+ * Станок считается изменённым, если у него отличается хотя бы один из отпечатков.
+ */
+public class TransactionFingerprints {
+
+    static final TransactionFingerprints EMPTY = new TransactionFingerprints(Map.of(), Map.of());
+
+    private final Map<String, List<Object>> operations;
+    private final Map<String, List<Object>> problems;
+
+    TransactionFingerprints(Map<String, List<Object>> operations, Map<String, List<Object>> problems) {
+        this.operations = operations;
+        this.problems = problems;
+    }
+
+    // Станки с операциями в work_report_ppp
+    public Set<String> getTransactions() {
+        return operations.keySet();
+    }
+
+    public boolean isChanged(String transaction, TransactionFingerprints previous) {
+        return !Objects.equals(operations.get(transaction), previous.operations.get(transaction))
+                || !Objects.equals(problems.get(transaction), previous.problems.get(transaction));
+    }
+
+    // Изменённые, появившиеся и пропавшие станки обеих таблиц
+    public Set<String> changedSince(TransactionFingerprints previous) {
+        Set<String> changed = new HashSet<>(operations.keySet());
+        changed.addAll(previous.operations.keySet());
+        changed.addAll(problems.keySet());
+        changed.addAll(previous.problems.keySet());
+        changed.removeIf(transaction -> !isChanged(transaction, previous));
+        return changed;
+    }
+}
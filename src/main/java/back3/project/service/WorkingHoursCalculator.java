@@ -1,15 +1,32 @@
 package back3.project.service;
-import java.time.DayOfWeek;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
+/**
+ * Рабочее время между двумя моментами без перебора дней: полные рабочие дни
+ * берутся из префиксных сумм производственного календаря, отдельно
+ * учитываются только первый и последний день интервала.
+ * Перегрузки без календаря считают нерабочими только субботу и воскресенье.
+ */
 public class WorkingHoursCalculator {
 
-    private static final LocalTime WORKDAY_START = LocalTime.of(8, 30);
-    private static final LocalTime WORKDAY_END = LocalTime.of(17, 30);
+    private static final LocalTime WORKDAY_START = ProductionCalendar.WORKDAY_START;
 
+    private WorkingHoursCalculator() {
+    }
+
+    /**
+     * Длительность операции в рабочих часах: первый день — от начала до 17:30,
+     * последний — от 8:30 до окончания, дни между ними по 8 часов, выходные не считаются.
+     */
     public static Duration calculateWorkingHours(LocalDateTime start, LocalDateTime end) {
+        return calculateWorkingHours(start, end, ProductionCalendar.WEEKENDS_ONLY);
+    }
+
+    // То же с праздниками и сокращёнными днями: дни между первым и последним — по норме календаря
+    public static Duration calculateWorkingHours(LocalDateTime start, LocalDateTime end, ProductionCalendar calendar) {
         if (start == null || end == null) {
             return Duration.ZERO;
         }
@@ -18,47 +35,56 @@ public class WorkingHoursCalculator {
             return Duration.ZERO;
         }
 
-        Duration totalWorkingHours = Duration.ZERO;
-        LocalDateTime current = start;
-
-        while (current.isBefore(end)) {
-            DayOfWeek dayOfWeek = current.getDayOfWeek();
-            if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
-                // Пропускаем выходные дни
-                current = current.plusDays(1).toLocalDate().atStartOfDay();
-                continue;
-            }
-
-            if (current.toLocalDate().equals(start.toLocalDate())) {
-                // Первый день
-                totalWorkingHours = totalWorkingHours.plus(calculateWorkingHoursFirstDay(start, end));
-                current = current.plusDays(1).toLocalDate().atStartOfDay();
-            } else if (current.toLocalDate().equals(end.toLocalDate())) {
-                // Последний день
-                totalWorkingHours = totalWorkingHours.plus(calculateWorkingHoursLastDay(end));
-                current = end;
-            }
-            else {
-                // Проверяем, является ли "current" датой, отличной от start и end, и не выпадает ли она на выходной
-                 dayOfWeek = current.getDayOfWeek();
-                if (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY) {
-                    totalWorkingHours = totalWorkingHours.plus(Duration.ofHours(8));
-                }
-                current = current.plusDays(1).toLocalDate().atStartOfDay();
-            }
+        LocalDate startDate = start.toLocalDate();
+        LocalDate endDate = end.toLocalDate();
+        if (startDate.equals(endDate)) {
+            return calendar.isWorkingDay(startDate) ? calculateWorkingHoursSameDay(start, end, calendar) : Duration.ZERO;
+        }
+
+        Duration totalWorkingHours = Duration.ofSeconds(calendar.normSecondsBetween(startDate.plusDays(1), endDate));
+        if (calendar.isWorkingDay(startDate)) {
+            totalWorkingHours = totalWorkingHours.plus(calculateWorkingHoursFirstDay(start, calendar.getWorkdayEnd(startDate)));
+        }
+        if (calendar.isWorkingDay(endDate)) {
+            totalWorkingHours = totalWorkingHours.plus(calculateWorkingHoursLastDay(end));
+        }
+        return totalWorkingHours;
+    }
 
+    // Длительность строки отчёта, как её считает расчёт этапа: внутри одного дня — окно дня
+    // без проверки на выходной (как раньше), иначе calculateWorkingHours
+    public static Duration calculateOperationDuration(LocalDateTime start, LocalDateTime end, ProductionCalendar calendar) {
+        return start.toLocalDate().equals(end.toLocalDate())
+                ? calculateWorkingHoursSameDay(start, end, calendar)
+                : calculateWorkingHours(start, end, calendar);
+    }
 
+    /**
+     * Пересечение интервала с рабочими окнами 8:30–17:30 рабочих дней
+     * (межоперационное время). Для end раньше start — ноль.
+     */
+    public static Duration calculateWorkingTimeBetween(LocalDateTime start, LocalDateTime end) {
+        return calculateWorkingTimeBetween(start, end, ProductionCalendar.WEEKENDS_ONLY);
+    }
 
+    public static Duration calculateWorkingTimeBetween(LocalDateTime start, LocalDateTime end, ProductionCalendar calendar) {
+        if (start == null || end == null) {
+            return Duration.ZERO;
         }
-
-        return totalWorkingHours;
+        return calendar.workingTimeBetween(start, end);
     }
 
     static Duration calculateWorkingHoursSameDay(LocalDateTime start, LocalDateTime end) {
+        return calculateWorkingHoursSameDay(start, end, ProductionCalendar.WEEKENDS_ONLY);
+    }
+
+    // Конец дня берётся из календаря (в сокращённый день раньше 17:30)
+    static Duration calculateWorkingHoursSameDay(LocalDateTime start, LocalDateTime end, ProductionCalendar calendar) {
+        LocalTime workdayEnd = calendar.getWorkdayEnd(start.toLocalDate());
         LocalTime startTime = start.toLocalTime();
         LocalTime endTime = end.toLocalTime();
 
-        if (startTime.isAfter(WORKDAY_END)) {
+        if (startTime.isAfter(workdayEnd)) {
             return Duration.ZERO; // Операция началась после окончания рабочего дня
         }
 
@@ -67,23 +93,18 @@ public class WorkingHoursCalculator {
         }
 
         startTime = startTime.isBefore(WORKDAY_START) ? WORKDAY_START : startTime;
-        endTime = endTime.isAfter(WORKDAY_END) ? WORKDAY_END : endTime;
+        endTime = endTime.isAfter(workdayEnd) ? workdayEnd : endTime;
 
         return Duration.between(startTime, endTime);
     }
 
-
-    private static Duration calculateWorkingHoursFirstDay(LocalDateTime start, LocalDateTime end) {
-        if (start.toLocalDate().equals(end.toLocalDate())) {
-            return calculateWorkingHoursSameDay(start, end);
-        }
+    private static Duration calculateWorkingHoursFirstDay(LocalDateTime start, LocalTime endOfDay) {
         LocalTime startTime = start.toLocalTime();
 
-        if (startTime.isAfter(WORKDAY_END)) {
+        if (startTime.isAfter(endOfDay)) {
             return Duration.ZERO;
         }
 
-        LocalTime endOfDay = WORKDAY_END;
         return Duration.between(startTime, endOfDay);
     }
 
@@ -100,4 +121,4 @@ public class WorkingHoursCalculator {
     }
 
 
-}
\ No newline at end of file
+}
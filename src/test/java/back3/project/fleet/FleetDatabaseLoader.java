@@ -0,0 +1,151 @@
+package back3.project.fleet;
+
+import back3.project.entity.Ppp;
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.entity.PppOperation;
+import back3.project.entity.Problems;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Пакетная загрузка парка FleetGenerator в базу через JdbcTemplate.batchUpdate.
+ * Строки копятся в буферах по таблицам и уходят пачками по BATCH_SIZE; после generate() нужен flush().
+ */
+public class FleetDatabaseLoader implements FleetSink {
+
+	private static final int BATCH_SIZE = 5_000;
+
+	private static final String INSERT_PPP = "INSERT INTO plan_ppp (\"Machine\", \"Status_ppp\", \"Count_days_PPP\", " +
+			"\"Date_start_PPP_Plan\", \"Date_start_PPP_Forecast\", \"Date_start_PPP_Fact\", " +
+			"\"Date_end_PPP_Plan\", \"Date_end_PPP_Forecast\", \"Date_end_PPP_Fact\", " +
+			"\"Shipping_date_Plan\", \"Shipping_date_Forecast\", \"Shipping_date_Fact\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_OPERATION = "INSERT INTO work_report_ppp (id, transaction, stage_ppp, start_work, stop_work, employee) " +
+			"VALUES (?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_NORM = "INSERT INTO operation_norm (work_ppp, operation_option_norm, type_mashine, specialty) " +
+			"VALUES (?, ?, ?, ?)";
+	private static final String INSERT_EMPLOYEE = "INSERT INTO specialization (id, employee, specialization) VALUES (?, ?, ?)";
+	private static final String INSERT_PROBLEM = "INSERT INTO faults (id, transaction, id_employee, unit, description, norm_hours) " +
+			"VALUES (?, ?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final List<Object[]> ppps = new ArrayList<>();
+	private final List<Object[]> operations = new ArrayList<>();
+	private final List<Object[]> norms = new ArrayList<>();
+	private final List<Object[]> employees = new ArrayList<>();
+	private final List<Object[]> problems = new ArrayList<>();
+
+	private long pppCount;
+	private long operationCount;
+	private long problemCount;
+
+	public FleetDatabaseLoader(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	// Таблицы plan_ppp, work_report_ppp, operation_norm, specialization и faults
+	public void createSchema() {
+		new ResourceDatabasePopulator(new ClassPathResource("fleet-schema.sql")).execute(jdbcTemplate.getDataSource());
+	}
+
+	@Override
+	public void norm(PppNorms norm) {
+		add(norms, INSERT_NORM, new Object[]{norm.getOperationNormName(), norm.getOperationNorm(),
+				norm.getOperationType(), norm.getCategory()});
+	}
+
+	@Override
+	public void employee(PppEmployees employee) {
+		add(employees, INSERT_EMPLOYEE, new Object[]{employee.getEmployeesId(), employee.getEmployeesName(),
+				employee.getEmployeesSpecialization()});
+	}
+
+	@Override
+	public void ppp(Ppp ppp) {
+		pppCount++;
+		add(ppps, INSERT_PPP, new Object[]{ppp.getTransaction(), ppp.getStatus(), ppp.getPlanPpp(),
+				date(ppp.getPlanDateStart()), date(ppp.getForecastDateStart()), date(ppp.getFactDateStart()),
+				date(ppp.getPlanDateStop()), date(ppp.getForecastDateStop()), date(ppp.getFactDateStop()),
+				date(ppp.getPlanDateShipment()), date(ppp.getForecastDateShipment()), date(ppp.getFactDateShipment())});
+	}
+
+	@Override
+	public void operation(PppOperation operation) {
+		operationCount++;
+		add(operations, INSERT_OPERATION, new Object[]{operation.getOperationId(), operation.getTransaction(),
+				operation.getOperationType(), timestamp(operation.getStartTime()), timestamp(operation.getStopTime()),
+				operation.getEmployeesId()});
+	}
+
+	@Override
+	public void problem(Problems problem) {
+		problemCount++;
+		add(problems, INSERT_PROBLEM, new Object[]{problem.getId(), problem.getTransaction(), problem.getIdEmployee(),
+				problem.getType(), problem.getDescription(), problem.getNormHours()});
+	}
+
+	// Дописывает неполные пачки
+	public void flush() {
+		flush(norms, INSERT_NORM);
+		flush(employees, INSERT_EMPLOYEE);
+		flush(ppps, INSERT_PPP);
+		flush(operations, INSERT_OPERATION);
+		flush(problems, INSERT_PROBLEM);
+	}
+
+	public long getPppCount() {
+		return pppCount;
+	}
+
+	public long getOperationCount() {
+		return operationCount;
+	}
+
+	public long getProblemCount() {
+		return problemCount;
+	}
+
+	private void add(List<Object[]> buffer, String sql, Object[] row) {
+		buffer.add(row);
+		if (buffer.size() >= BATCH_SIZE) {
+			flush(buffer, sql);
+		}
+	}
+
+	private void flush(List<Object[]> buffer, String sql) {
+		if (!buffer.isEmpty()) {
+			jdbcTemplate.batchUpdate(sql, buffer);
+			buffer.clear();
+		}
+	}
+
+	// MD5 как в PostgreSQL (hex в нижнем регистре) для отпечатков TransactionFingerprintService; в H2 объявлена в fleet-schema.sql
+	public static String md5(String value) throws NoSuchAlgorithmException {
+		if (value == null) {
+			return null;
+		}
+		return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Date date(LocalDate date) {
+		return date != null ? Date.valueOf(date) : null;
+	}
+
+	private static Timestamp timestamp(LocalDateTime dateTime) {
+		return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+	}
+}
@@ -0,0 +1,225 @@
+package back3.project.fleet;
+
+import back3.project.entity.Ppp;
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.entity.PppOperation;
+import back3.project.entity.Problems;
+import back3.project.service.OperationService;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированный синтетический парк: plan_ppp, work_report_ppp, operation_norm,
+ * specialization и faults. Одинаковые параметры и seed дают одинаковые строки.
+ * Форма как в цеху: этапы идут по порядку, станок прошёл часть этапов, последний начатый
+ * этап может быть не закрыт; у этапа несколько смен рабочих нужной специализации,
+ * у станка несколько опций и замечаний. Строки не накапливаются — сразу уходят в FleetSink.
+ */
+public class FleetGenerator {
+
+	public static final long DEFAULT_SEED = 20250113L;
+
+	static final String STATUS_IN_WORK = "В работе";
+	static final String STATUS_DONE = "Завершен";
+	static final String STATUS_PLANNED = "Запланирован";
+
+	private static final List<String> STAGES = OperationService.ALLOWED_OPERATION_TYPES;
+	// Специализация этапа, как в OperationCalculationService
+	private static final Map<String, String> STAGE_WORK_TYPES = Map.of(
+			"Входной контроль", "Комплектация",
+			"Выходной контроль", "Комплектация",
+			"Подключение", "Электрик",
+			"Проверка механиком", "Механик",
+			"Проверка технологом", "Технолог",
+			"Проверка электронщиком", "Электронщик",
+			"Транспортное положение", "Электрик"
+	);
+	private static final List<String> WORK_TYPES = List.of("Комплектация", "Электрик", "Механик", "Технолог", "Электронщик");
+	private static final int OPTIONS_PER_WORK_TYPE = 6;
+	private static final int MAX_OPTIONS_PER_MACHINE = 5;
+	private static final int MACHINES_PER_EMPLOYEE = 20; // не меньше 3 сотрудников на специализацию
+	private static final int DEFAULT_MAX_EXTRA_SHIFTS = 3; // 1–4 смены на этап
+	private static final LocalDate FIRST_START = LocalDate.of(2023, 1, 9);
+	private static final int START_SPREAD_DAYS = 730;
+
+	private final int machines;
+	private final int maxExtraShifts;
+	private final long seed;
+
+	private final Map<String, List<Long>> employeeIdsByWorkType = new HashMap<>();
+	private final Map<String, List<String>> optionNamesByWorkType = new HashMap<>();
+	private long nextOperationId = 1;
+	private long nextProblemId = 1;
+
+	/**
+	 * workReports — примерное общее число строк work_report_ppp; 0 — обычная плотность (около 11 строк на станок).
+	 */
+	public FleetGenerator(int machines, long workReports, long seed) {
+		this.machines = machines;
+		this.seed = seed;
+		if (workReports <= 0 || machines <= 0) {
+			this.maxExtraShifts = DEFAULT_MAX_EXTRA_SHIFTS;
+		} else {
+			// В среднем начата половина этапов и MAX_OPTIONS_PER_MACHINE / 2 опций на станок
+			double startedStages = STAGES.size() / 2.0;
+			double rowsPerMachine = (double) workReports / machines - MAX_OPTIONS_PER_MACHINE / 2.0;
+			double shiftsPerStage = Math.max(1.0, rowsPerMachine / startedStages);
+			this.maxExtraShifts = (int) Math.round(2 * (shiftsPerStage - 1));
+		}
+	}
+
+	public void generate(FleetSink sink) {
+		SplittableRandom random = new SplittableRandom(seed);
+		generateNorms(random, sink);
+		generateEmployees(Math.max(3, machines / MACHINES_PER_EMPLOYEE), sink);
+		for (int i = 0; i < machines; i++) {
+			generateMachine(String.format("M%06d", i + 1), random, sink);
+		}
+	}
+
+	private void generateNorms(SplittableRandom random, FleetSink sink) {
+		for (String stage : STAGES) {
+			sink.norm(norm(stage, hours(random, 4, 40), stage, STAGE_WORK_TYPES.get(stage)));
+		}
+		for (String workType : WORK_TYPES) {
+			List<String> optionNames = new ArrayList<>();
+			for (int i = 1; i <= OPTIONS_PER_WORK_TYPE; i++) {
+				String name = "Опция " + workType + " " + i;
+				sink.norm(norm(name, hours(random, 1, 8), workType, "Опция"));
+				optionNames.add(name);
+			}
+			optionNamesByWorkType.put(workType, optionNames);
+		}
+	}
+
+	private void generateEmployees(int perWorkType, FleetSink sink) {
+		long id = 1;
+		for (String workType : WORK_TYPES) {
+			List<Long> ids = new ArrayList<>();
+			for (int i = 1; i <= perWorkType; i++) {
+				PppEmployees employee = new PppEmployees();
+				employee.setEmployeesId(id);
+				employee.setEmployeesName(workType + " " + i);
+				employee.setEmployeesSpecialization(workType);
+				sink.employee(employee);
+				ids.add(id++);
+			}
+			employeeIdsByWorkType.put(workType, ids);
+		}
+	}
+
+	private void generateMachine(String transaction, SplittableRandom random, FleetSink sink) {
+		LocalDate planStart = FIRST_START.plusDays(random.nextInt(START_SPREAD_DAYS));
+		// Сколько этапов начато: 0 — станок запланирован, все — завершён; у станка в работе последний этап часто не закрыт
+		int startedStages = random.nextInt(STAGES.size() + 1);
+		boolean lastOpen = startedStages < STAGES.size() && random.nextBoolean();
+
+		Ppp ppp = new Ppp();
+		ppp.setTransaction(transaction);
+		ppp.setPlanPpp((long) (10 + random.nextInt(30)));
+		ppp.setPlanDateStart(planStart);
+		ppp.setForecastDateStart(planStart.plusDays(random.nextInt(5)));
+		ppp.setPlanDateStop(planStart.plusDays(30 + random.nextInt(30)));
+		ppp.setPlanDateShipment(ppp.getPlanDateStop().plusDays(7));
+		if (startedStages == 0) {
+			ppp.setStatus(STATUS_PLANNED);
+			sink.ppp(ppp);
+			return;
+		}
+		LocalDate factStart = planStart.plusDays(random.nextInt(10) - 3);
+		ppp.setFactDateStart(factStart);
+		ppp.setStatus(startedStages == STAGES.size() ? STATUS_DONE : STATUS_IN_WORK);
+		sink.ppp(ppp);
+
+		List<Long> stageEmployees = new ArrayList<>();
+		LocalDateTime cursor = workdayStart(factStart.plusDays(2));
+		for (int s = 0; s < startedStages; s++) {
+			String stage = STAGES.get(s);
+			List<Long> candidates = employeeIdsByWorkType.get(STAGE_WORK_TYPES.get(stage));
+			long employeeId = candidates.get(random.nextInt(candidates.size()));
+			stageEmployees.add(employeeId);
+			int shifts = 1 + random.nextInt(maxExtraShifts + 1);
+			for (int shift = 0; shift < shifts; shift++) {
+				boolean open = lastOpen && s == startedStages - 1 && shift == shifts - 1;
+				// Иногда смену продолжает напарник
+				long shiftEmployee = random.nextInt(5) == 0 ? candidates.get(random.nextInt(candidates.size())) : employeeId;
+				LocalDateTime start = cursor.plusMinutes(random.nextInt(60));
+				LocalDateTime stop = start.plusMinutes(60 + random.nextInt(7 * 60));
+				sink.operation(operation(transaction, stage, start, open ? null : stop, shiftEmployee));
+				cursor = nextWorkdayStart(stop);
+			}
+			// Межоперационное ожидание 0–3 рабочих дня
+			for (int wait = random.nextInt(4); wait > 0; wait--) {
+				cursor = nextWorkdayStart(cursor);
+			}
+		}
+
+		// Опции выполняются сотрудниками той же специализации в рамках этапов
+		int optionCount = random.nextInt(MAX_OPTIONS_PER_MACHINE + 1);
+		for (int i = 0; i < optionCount; i++) {
+			String workType = WORK_TYPES.get(random.nextInt(WORK_TYPES.size()));
+			List<String> optionNames = optionNamesByWorkType.get(workType);
+			List<Long> candidates = employeeIdsByWorkType.get(workType);
+			LocalDateTime start = workdayStart(factStart.plusDays(2 + random.nextInt(20))).plusMinutes(random.nextInt(240));
+			sink.operation(operation(transaction, optionNames.get(random.nextInt(optionNames.size())),
+					start, start.plusMinutes(30 + random.nextInt(180)), candidates.get(random.nextInt(candidates.size()))));
+		}
+
+		int problemCount = random.nextInt(4);
+		for (int i = 0; i < problemCount; i++) {
+			Problems problem = new Problems();
+			problem.setId(nextProblemId++);
+			problem.setTransaction(transaction);
+			problem.setIdEmployee(stageEmployees.get(random.nextInt(stageEmployees.size())));
+			problem.setType("Узел " + (1 + random.nextInt(12)));
+			problem.setDescription("Замечание " + i);
+			problem.setNormHours((long) (1 + random.nextInt(8)));
+			sink.problem(problem);
+		}
+	}
+
+	private PppOperation operation(String transaction, String stage, LocalDateTime start, LocalDateTime stop, long employeeId) {
+		PppOperation operation = new PppOperation();
+		operation.setOperationId(nextOperationId++);
+		operation.setTransaction(transaction);
+		operation.setOperationType(stage);
+		operation.setStartTime(start);
+		operation.setStopTime(stop);
+		operation.setEmployeesId(employeeId);
+		return operation;
+	}
+
+	private static PppNorms norm(String name, double hours, String operationType, String category) {
+		PppNorms norm = new PppNorms();
+		norm.setOperationNormName(name);
+		norm.setOperationNorm(String.valueOf(hours));
+		norm.setOperationType(operationType);
+		norm.setCategory(category);
+		return norm;
+	}
+
+	// Норма с шагом полчаса
+	private static double hours(SplittableRandom random, int min, int max) {
+		return min + random.nextInt((max - min) * 2 + 1) / 2.0;
+	}
+
+	private static LocalDateTime workdayStart(LocalDate date) {
+		while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+			date = date.plusDays(1);
+		}
+		return date.atTime(LocalTime.of(8, 30));
+	}
+
+	private static LocalDateTime nextWorkdayStart(LocalDateTime after) {
+		return workdayStart(after.toLocalDate().plusDays(1));
+	}
+}
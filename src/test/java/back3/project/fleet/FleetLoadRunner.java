@@ -0,0 +1,95 @@
+package back3.project.fleet;
+
+import back3.project.ProjectApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сквозной нагрузочный прогон без production-базы: синтетический парк грузится во встроенную H2
+ * (режим PostgreSQL), приложение поднимается на ней на случайном порту, затем HttpLoadDriver
+ * по очереди нагружает эндпоинты и печатает p50/p99 и пропускную способность.
+ *
+ * mvn -P loadtest test-compile exec:exec@loadtest -Dloadtest.args="machines=10000 work-reports=5000000"
+ *
+ * Параметры (имя=значение): machines, work-reports (0 — обычная плотность), seed, warmup,
+ * requests (на эндпоинт), concurrency, timeout (ISO-8601), endpoints (через запятую).
+ */
+public class FleetLoadRunner {
+
+	private static final String DATABASE_URL = "jdbc:h2:mem:fleet;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+	private static final String DEFAULT_ENDPOINTS = "/api/ppp,/employee-statistics,/employees/performance";
+
+	public static void main(String[] args) throws Exception {
+		// devtools перезапускает main в новом потоке — база загрузилась бы второй раз
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		Map<String, String> options = parse(args);
+		int machines = Integer.parseInt(options.getOrDefault("machines", "1000"));
+		long workReports = Long.parseLong(options.getOrDefault("work-reports", "0"));
+		long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(FleetGenerator.DEFAULT_SEED)));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+		int requests = Integer.parseInt(options.getOrDefault("requests", "200"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+		Duration timeout = Duration.parse(options.getOrDefault("timeout", "PT5M"));
+		List<String> endpoints = List.of(options.getOrDefault("endpoints", DEFAULT_ENDPOINTS).split(","));
+
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(DATABASE_URL, "sa", "");
+		FleetDatabaseLoader loader = new FleetDatabaseLoader(dataSource);
+		long loadStartedAt = System.nanoTime();
+		loader.createSchema();
+		new FleetGenerator(machines, workReports, seed).generate(loader);
+		loader.flush();
+		System.out.printf("Loaded %d machines, %d work reports, %d faults in %d ms%n", loader.getPppCount(),
+				loader.getOperationCount(), loader.getProblemCount(), Duration.ofNanos(System.nanoTime() - loadStartedAt).toMillis());
+
+		// Аргументами командной строки: они важнее application.properties.
+		// Логи сервисов на каждый станок и SQL в консоль отключены: меряется расчёт, а не вывод
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjectApplication.class).run(
+				"--spring.datasource.url=" + DATABASE_URL,
+				"--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.jpa.hibernate.ddl-auto=none",
+				"--spring.jpa.show-sql=false",
+				"--server.address=127.0.0.1",
+				"--server.port=0",
+				"--logging.level.back3.project=WARN",
+				"--logging.level.org.hibernate.type=WARN");
+		int exitCode;
+		try {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			String baseUrl = "http://127.0.0.1:" + port;
+			HttpLoadDriver driver = new HttpLoadDriver(timeout);
+
+			System.out.printf("%n%-40s %8s %7s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "p50 ms", "p99 ms", "max ms", "req/s");
+			int errors = 0;
+			for (String endpoint : endpoints) {
+				HttpLoadDriver.Result result = driver.run(baseUrl, endpoint.trim(), warmup, requests, concurrency);
+				errors += result.errors();
+				System.out.printf("%-40s %8d %7d %10.1f %10.1f %10.1f %10.1f%n", result.endpoint(), result.requests(), result.errors(),
+						result.p50Nanos() / 1e6, result.p99Nanos() / 1e6, result.maxNanos() / 1e6, result.throughput());
+			}
+			exitCode = errors > 0 ? 1 : 0;
+		} finally {
+			context.close();
+		}
+		System.exit(exitCode);
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Expected name=value, got: " + arg);
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		return options;
+	}
+}
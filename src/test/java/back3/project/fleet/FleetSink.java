@@ -0,0 +1,21 @@
+package back3.project.fleet;
+
+import back3.project.entity.Ppp;
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.entity.PppOperation;
+import back3.project.entity.Problems;
+
+// Приёмник строк FleetGenerator: справочники приходят раньше станков, строки станка — подряд
+public interface FleetSink {
+
+	void norm(PppNorms norm);
+
+	void employee(PppEmployees employee);
+
+	void ppp(Ppp ppp);
+
+	void operation(PppOperation operation);
+
+	void problem(Problems problem);
+}
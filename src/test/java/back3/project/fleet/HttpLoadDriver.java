@@ -0,0 +1,95 @@
+package back3.project.fleet;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Замкнутая нагрузка на один URL: concurrency потоков шлют запросы друг за другом,
+ * пока не отправлено requests запросов. Прогревочные запросы в статистику не входят.
+ */
+public class HttpLoadDriver {
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+	private final Duration requestTimeout;
+
+	public HttpLoadDriver(Duration requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	public record Result(String endpoint, int requests, int errors, long p50Nanos, long p99Nanos, long maxNanos,
+						 double throughput) {
+	}
+
+	public Result run(String baseUrl, String endpoint, int warmup, int requests, int concurrency) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint))
+				.timeout(requestTimeout)
+				.GET()
+				.build();
+		for (int i = 0; i < warmup; i++) {
+			send(request);
+		}
+
+		long[] latencies = new long[requests];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		long startedAt = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < concurrency; w++) {
+				futures.add(workers.submit(() -> {
+					for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+						long requestStartedAt = System.nanoTime();
+						if (!send(request)) {
+							errors.incrementAndGet();
+						}
+						latencies[i] = System.nanoTime() - requestStartedAt;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+		long elapsedNanos = System.nanoTime() - startedAt;
+
+		Arrays.sort(latencies);
+		return new Result(endpoint, requests, errors.get(), percentile(latencies, 0.50), percentile(latencies, 0.99),
+				latencies.length > 0 ? latencies[latencies.length - 1] : 0, requests * 1e9 / elapsedNanos);
+	}
+
+	// Ответ читается целиком: в задержку входит передача тела
+	private boolean send(HttpRequest request) {
+		try {
+			HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+			return response.statusCode() == 200;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	// Ближайший ранг по отсортированному массиву
+	static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(p * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
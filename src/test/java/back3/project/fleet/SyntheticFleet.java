@@ -0,0 +1,157 @@
+package back3.project.fleet;
+
+import back3.project.entity.Ppp;
+import back3.project.entity.PppEmployees;
+import back3.project.entity.PppNorms;
+import back3.project.entity.PppOperation;
+import back3.project.entity.Problems;
+import back3.project.repository.OperationRow;
+import back3.project.repository.ProblemsNormHoursSum;
+import back3.project.repository.StageAggregate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Парк FleetGenerator целиком в памяти, плюс строки в том виде, в каком их отдают
+ * запросы репозиториев (для бенчмарков без базы).
+ */
+public class SyntheticFleet implements FleetSink {
+
+	private final List<Ppp> ppps = new ArrayList<>();
+	private final List<PppNorms> norms = new ArrayList<>();
+	private final List<PppEmployees> employees = new ArrayList<>();
+	private final List<PppOperation> operations = new ArrayList<>();
+	private final List<Problems> problems = new ArrayList<>();
+
+	public static SyntheticFleet generate(int machines) {
+		return generate(machines, FleetGenerator.DEFAULT_SEED);
+	}
+
+	public static SyntheticFleet generate(int machines, long seed) {
+		SyntheticFleet fleet = new SyntheticFleet();
+		new FleetGenerator(machines, 0, seed).generate(fleet);
+		return fleet;
+	}
+
+	@Override
+	public void norm(PppNorms norm) {
+		norms.add(norm);
+	}
+
+	@Override
+	public void employee(PppEmployees employee) {
+		employees.add(employee);
+	}
+
+	@Override
+	public void ppp(Ppp ppp) {
+		ppps.add(ppp);
+	}
+
+	@Override
+	public void operation(PppOperation operation) {
+		operations.add(operation);
+	}
+
+	@Override
+	public void problem(Problems problem) {
+		problems.add(problem);
+	}
+
+	public List<Ppp> getPpps() {
+		return ppps;
+	}
+
+	public List<PppNorms> getNorms() {
+		return norms;
+	}
+
+	public List<PppEmployees> getEmployees() {
+		return employees;
+	}
+
+	public List<PppOperation> getOperations() {
+		return operations;
+	}
+
+	public List<Problems> getProblems() {
+		return problems;
+	}
+
+	// Строки work_report_ppp в том виде, в каком их отдаёт findRowsWithEmployee()
+	public List<OperationRow> operationRows() {
+		List<OperationRow> rows = new ArrayList<>(operations.size());
+		for (PppOperation operation : operations) {
+			rows.add(new OperationRow(operation.getOperationId(), operation.getTransaction(), operation.getOperationType(),
+					operation.getStartTime(), operation.getStopTime(), operation.getEmployeesId()));
+		}
+		return rows;
+	}
+
+	// То же, что aggregateStages(): группировка по (transaction, stage_ppp), операции идут в порядке id
+	public List<StageAggregate> stageAggregates() {
+		Map<String, Map<String, List<PppOperation>>> byTransactionAndStage = new LinkedHashMap<>();
+		for (PppOperation operation : operations) {
+			byTransactionAndStage
+					.computeIfAbsent(operation.getTransaction(), key -> new LinkedHashMap<>())
+					.computeIfAbsent(operation.getOperationType(), key -> new ArrayList<>())
+					.add(operation);
+		}
+		List<StageAggregate> aggregates = new ArrayList<>();
+		byTransactionAndStage.forEach((transaction, byStage) -> byStage.forEach((stage, stageOperations) -> {
+			PppOperation first = stageOperations.get(0);
+			LocalDateTime startTime = null;
+			LocalDateTime stopTime = null;
+			long openCount = 0;
+			for (PppOperation operation : stageOperations) {
+				if (operation.getStartTime() != null && (startTime == null || operation.getStartTime().isBefore(startTime))) {
+					startTime = operation.getStartTime();
+				}
+				if (operation.getStopTime() != null && (stopTime == null || operation.getStopTime().isAfter(stopTime))) {
+					stopTime = operation.getStopTime();
+				}
+				if (operation.getStartTime() != null && operation.getStopTime() == null) {
+					openCount++;
+				}
+			}
+			aggregates.add(new StageAggregate(transaction, stage, first.getOperationId(), first.getEmployeesId(),
+					startTime, stopTime, openCount));
+		}));
+		return aggregates;
+	}
+
+	// То же, что sumNormHoursByTransactionAndEmployee()
+	public List<ProblemsNormHoursSum> problemsNormHoursSums() {
+		Map<String, Map<Long, Long>> sums = new LinkedHashMap<>();
+		for (Problems problem : problems) {
+			sums.computeIfAbsent(problem.getTransaction(), key -> new LinkedHashMap<>())
+					.merge(problem.getIdEmployee(), problem.getNormHours(), Long::sum);
+		}
+		List<ProblemsNormHoursSum> result = new ArrayList<>();
+		sums.forEach((transaction, byEmployee) -> byEmployee.forEach((employeeId, normHours) ->
+				result.add(new NormHoursSum(transaction, employeeId, normHours))));
+		return result;
+	}
+
+	private record NormHoursSum(String transaction, Long idEmployee, Long normHours) implements ProblemsNormHoursSum {
+
+		@Override
+		public String getTransaction() {
+			return transaction;
+		}
+
+		@Override
+		public Long getIdEmployee() {
+			return idEmployee;
+		}
+
+		@Override
+		public Long getNormHours() {
+			return normHours;
+		}
+	}
+}
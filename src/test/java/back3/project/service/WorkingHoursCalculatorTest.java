@@ -0,0 +1,266 @@
+package back3.project.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Сверка формул WorkingHoursCalculator с прежними подневными циклами на случайных интервалах
+class WorkingHoursCalculatorTest {
+
+	private static final LocalTime WORKDAY_START = LocalTime.of(8, 30);
+	private static final LocalTime WORKDAY_END = LocalTime.of(17, 30);
+	private static final LocalDateTime BASE = LocalDateTime.of(2023, 1, 1, 0, 0);
+	private static final int ITERATIONS = 20_000;
+
+	@Test
+	void calculateWorkingHoursMatchesDayByDayLoop() {
+		Random random = new Random(20240501L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			LocalDateTime start = randomDateTime(random);
+			LocalDateTime end = start.plus(randomSpan(random));
+			assertEquals(legacyCalculateWorkingHours(start, end), WorkingHoursCalculator.calculateWorkingHours(start, end),
+					() -> "calculateWorkingHours(" + start + ", " + end + ")");
+			// Обратный порядок: оба варианта дают ноль
+			assertEquals(legacyCalculateWorkingHours(end, start), WorkingHoursCalculator.calculateWorkingHours(end, start),
+					() -> "calculateWorkingHours(" + end + ", " + start + ")");
+		}
+	}
+
+	@Test
+	void calculateWorkingTimeBetweenMatchesDayByDayLoop() {
+		Random random = new Random(20240502L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			LocalDateTime start = randomDateTime(random);
+			LocalDateTime end = start.plus(randomSpan(random));
+			assertEquals(legacyInterOperationWorkingHours(start, end), WorkingHoursCalculator.calculateWorkingTimeBetween(start, end),
+					() -> "calculateWorkingTimeBetween(" + start + ", " + end + ")");
+			assertEquals(legacyInterOperationWorkingHours(end, start), WorkingHoursCalculator.calculateWorkingTimeBetween(end, start),
+					() -> "calculateWorkingTimeBetween(" + end + ", " + start + ")");
+		}
+	}
+
+	@Test
+	void countWeekdaysMatchesIteration() {
+		Random random = new Random(20240503L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			LocalDate from = BASE.toLocalDate().plusDays(random.nextInt(800) - 400);
+			LocalDate to = from.plusDays(random.nextInt(60) - 5);
+			long expected = 0;
+			for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+				if (!isWeekend(date)) {
+					expected++;
+				}
+			}
+			assertEquals(expected, ProductionCalendar.countWeekdays(from, to), "countWeekdays(" + from + ", " + to + ")");
+		}
+	}
+
+	@Test
+	void calendarWorkingTimeMatchesDayByDayLoop() {
+		Random random = new Random(20240504L);
+		Map<LocalDate, Integer> specialDays = new HashMap<>();
+		for (int i = 0; i < 120; i++) {
+			LocalDate date = BASE.toLocalDate().plusDays(random.nextInt(730));
+			specialDays.put(date, switch (random.nextInt(3)) {
+				case 0 -> 0;
+				case 1 -> 7 * 3600;
+				default -> 8 * 3600;
+			});
+		}
+		ProductionCalendar calendar = new ProductionCalendar(specialDays);
+		for (int i = 0; i < ITERATIONS; i++) {
+			// Интервалы выходят за границы загруженных лет
+			LocalDateTime start = randomDateTime(random).minusDays(200);
+			LocalDateTime end = start.plus(randomSpan(random));
+			Duration expected = Duration.ZERO;
+			for (LocalDate date = start.toLocalDate(); !date.isAfter(end.toLocalDate()); date = date.plusDays(1)) {
+				if (!calendar.isWorkingDay(date)) {
+					continue;
+				}
+				LocalDateTime windowStart = date.atTime(WORKDAY_START).isBefore(start) ? start : date.atTime(WORKDAY_START);
+				LocalDateTime windowEnd = date.atTime(calendar.getWorkdayEnd(date)).isAfter(end) ? end : date.atTime(calendar.getWorkdayEnd(date));
+				if (windowStart.isBefore(windowEnd)) {
+					expected = expected.plus(Duration.between(windowStart, windowEnd));
+				}
+			}
+			assertEquals(expected, calendar.workingTimeBetween(start, end), "workingTimeBetween(" + start + ", " + end + ")");
+		}
+	}
+
+	@Test
+	void addNormHoursMatchesDayByDayWalk() {
+		Random random = new Random(20240505L);
+		Map<LocalDate, Integer> specialDays = new HashMap<>();
+		for (int i = 0; i < 120; i++) {
+			specialDays.put(BASE.toLocalDate().plusDays(random.nextInt(730)), random.nextBoolean() ? 0 : 7 * 3600);
+		}
+		ProductionCalendar calendar = new ProductionCalendar(specialDays);
+		for (int i = 0; i < ITERATIONS; i++) {
+			LocalDateTime from = randomDateTime(random).minusDays(200);
+			double hours = random.nextInt(4) == 0 ? random.nextInt(40) * 8 : random.nextInt(2000) / 10.0;
+			// Расходуем норму по дням, начиная с позиции from внутри своего дня
+			LocalDate day = from.toLocalDate();
+			long offset = Math.max(0, Math.min(from.toLocalTime().toSecondOfDay() - WORKDAY_START.toSecondOfDay(), normSeconds(calendar, day)));
+			long remaining = Math.round(hours * 3600);
+			while (remaining >= normSeconds(calendar, day) - offset) {
+				remaining -= normSeconds(calendar, day) - offset;
+				day = day.plusDays(1);
+				offset = 0;
+			}
+			LocalDateTime expected = day.atTime(WORKDAY_START).plusSeconds(offset + remaining);
+			assertEquals(expected, calendar.addNormHours(from, hours), "addNormHours(" + from + ", " + hours + ")");
+		}
+	}
+
+	private static long normSeconds(ProductionCalendar calendar, LocalDate date) {
+		if (!calendar.isWorkingDay(date)) {
+			return 0;
+		}
+		return calendar.getWorkdayEnd(date).toSecondOfDay() - WORKDAY_START.toSecondOfDay() - 3600;
+	}
+
+	@Test
+	void workingHoursFundFromCalendarFile() throws IOException {
+		ProductionCalendar calendar = new ProductionCalendar(new ClassPathResource("production-calendar.csv"));
+		long[] monthHours = {136, 160, 167, 175, 144, 151, 184, 168, 176, 184, 151, 176};
+		for (int month = 1; month <= 12; month++) {
+			assertEquals(monthHours[month - 1] * 3600, calendar.getWorkingHoursFund(2025, month), "2025-" + month);
+		}
+		assertEquals(1972L * 3600, calendar.getWorkingHoursFund(2025));
+		assertEquals(1973L * 3600, calendar.getWorkingHoursFund(2023));
+		assertEquals(1979L * 3600, calendar.getWorkingHoursFund(2024));
+		assertEquals(1972L * 3600, calendar.getWorkingHoursFund(2026));
+		// Год вне файла: только выходные
+		assertEquals(ProductionCalendar.countWeekdays(LocalDate.of(2030, 1, 1), LocalDate.of(2031, 1, 1)) * 8 * 3600,
+				calendar.getWorkingHoursFund(2030));
+	}
+
+	// Время с упором на границы рабочего дня и полночь
+	private static LocalDateTime randomDateTime(Random random) {
+		LocalDate date = BASE.toLocalDate().plusDays(random.nextInt(730));
+		LocalTime time = switch (random.nextInt(6)) {
+			case 0 -> LocalTime.MIDNIGHT;
+			case 1 -> WORKDAY_START;
+			case 2 -> WORKDAY_END;
+			case 3 -> WORKDAY_START.plusSeconds(random.nextInt(120) - 60);
+			case 4 -> WORKDAY_END.plusSeconds(random.nextInt(120) - 60);
+			default -> LocalTime.ofNanoOfDay((long) (random.nextDouble() * LocalTime.MAX.toNanoOfDay()));
+		};
+		return date.atTime(time);
+	}
+
+	// Короткие интервалы внутри дня, несколько дней и операции, открытые месяцами
+	private static Duration randomSpan(Random random) {
+		return switch (random.nextInt(4)) {
+			case 0 -> Duration.ofSeconds(random.nextInt(12 * 3600));
+			case 1 -> Duration.ofSeconds(random.nextInt(10 * 24 * 3600));
+			case 2 -> Duration.ofDays(random.nextInt(15));
+			default -> Duration.ofSeconds((long) random.nextInt(400) * 24 * 3600 + random.nextInt(24 * 3600));
+		};
+	}
+
+	private static boolean isWeekend(LocalDate date) {
+		DayOfWeek dayOfWeek = date.getDayOfWeek();
+		return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+	}
+
+	// Прежняя реализация WorkingHoursCalculator.calculateWorkingHours
+	private static Duration legacyCalculateWorkingHours(LocalDateTime start, LocalDateTime end) {
+		if (start == null || end == null) {
+			return Duration.ZERO;
+		}
+		if (start.isAfter(end)) {
+			return Duration.ZERO;
+		}
+		Duration totalWorkingHours = Duration.ZERO;
+		LocalDateTime current = start;
+		while (current.isBefore(end)) {
+			DayOfWeek dayOfWeek = current.getDayOfWeek();
+			if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+				current = current.plusDays(1).toLocalDate().atStartOfDay();
+				continue;
+			}
+			if (current.toLocalDate().equals(start.toLocalDate())) {
+				totalWorkingHours = totalWorkingHours.plus(legacyFirstDay(start, end));
+				current = current.plusDays(1).toLocalDate().atStartOfDay();
+			} else if (current.toLocalDate().equals(end.toLocalDate())) {
+				totalWorkingHours = totalWorkingHours.plus(legacyLastDay(end));
+				current = end;
+			} else {
+				totalWorkingHours = totalWorkingHours.plus(Duration.ofHours(8));
+				current = current.plusDays(1).toLocalDate().atStartOfDay();
+			}
+		}
+		return totalWorkingHours;
+	}
+
+	private static Duration legacyFirstDay(LocalDateTime start, LocalDateTime end) {
+		if (start.toLocalDate().equals(end.toLocalDate())) {
+			return legacySameDay(start, end);
+		}
+		LocalTime startTime = start.toLocalTime();
+		if (startTime.isAfter(WORKDAY_END)) {
+			return Duration.ZERO;
+		}
+		return Duration.between(startTime, WORKDAY_END);
+	}
+
+	private static Duration legacySameDay(LocalDateTime start, LocalDateTime end) {
+		LocalTime startTime = start.toLocalTime();
+		LocalTime endTime = end.toLocalTime();
+		if (startTime.isAfter(WORKDAY_END) || endTime.isBefore(WORKDAY_START)) {
+			return Duration.ZERO;
+		}
+		startTime = startTime.isBefore(WORKDAY_START) ? WORKDAY_START : startTime;
+		endTime = endTime.isAfter(WORKDAY_END) ? WORKDAY_END : endTime;
+		return Duration.between(startTime, endTime);
+	}
+
+	private static Duration legacyLastDay(LocalDateTime end) {
+		LocalTime endTime = end.toLocalTime();
+		if (endTime.isBefore(WORKDAY_START)) {
+			return Duration.ZERO;
+		}
+		return Duration.between(WORKDAY_START, endTime);
+	}
+
+	// Прежняя реализация InterOperationTimeService.calculateWorkingHours
+	private static Duration legacyInterOperationWorkingHours(LocalDateTime start, LocalDateTime end) {
+		Duration totalWorkingTime = Duration.ZERO;
+		LocalDateTime current = start;
+		boolean negative = false;
+		if (end.isBefore(start)) {
+			LocalDateTime temp = start;
+			start = end;
+			end = temp;
+			negative = true;
+		}
+		while (current.isBefore(end)) {
+			if (!isWeekend(current.toLocalDate())) {
+				LocalDateTime workdayStart = current.toLocalDate().atTime(WORKDAY_START);
+				LocalDateTime workdayEnd = current.toLocalDate().atTime(WORKDAY_END);
+				LocalDateTime intervalStart = current.isBefore(workdayStart) ? workdayStart : current;
+				LocalDateTime intervalEnd = end.isBefore(workdayEnd) ? end : workdayEnd;
+				if (intervalStart.isBefore(intervalEnd)) {
+					totalWorkingTime = totalWorkingTime.plus(Duration.between(intervalStart, intervalEnd));
+				}
+			}
+			current = current.plusDays(1).with(WORKDAY_START);
+		}
+		if (negative) {
+			totalWorkingTime = totalWorkingTime.negated();
+		}
+		return totalWorkingTime;
+	}
+}
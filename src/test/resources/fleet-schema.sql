@@ -0,0 +1,52 @@
+-- Схема production-таблиц для встроенной базы нагрузочного теста (H2, режим PostgreSQL)
+CREATE TABLE plan_ppp (
+    "Machine" VARCHAR(64) PRIMARY KEY,
+    "Status_ppp" VARCHAR(64),
+    "Count_days_PPP" BIGINT,
+    "Date_start_PPP_Plan" DATE,
+    "Date_start_PPP_Forecast" DATE,
+    "Date_start_PPP_Fact" DATE,
+    "Date_end_PPP_Plan" DATE,
+    "Date_end_PPP_Forecast" DATE,
+    "Date_end_PPP_Fact" DATE,
+    "Shipping_date_Plan" DATE,
+    "Shipping_date_Forecast" DATE,
+    "Shipping_date_Fact" DATE
+);
+
+CREATE TABLE work_report_ppp (
+    id BIGINT PRIMARY KEY,
+    transaction VARCHAR(64),
+    stage_ppp VARCHAR(128),
+    start_work TIMESTAMP,
+    stop_work TIMESTAMP,
+    employee BIGINT
+);
+CREATE INDEX work_report_ppp_transaction ON work_report_ppp (transaction);
+CREATE INDEX work_report_ppp_employee ON work_report_ppp (employee);
+
+CREATE TABLE operation_norm (
+    work_ppp VARCHAR(128) PRIMARY KEY,
+    operation_option_norm VARCHAR(32),
+    type_mashine VARCHAR(128),
+    specialty VARCHAR(64)
+);
+
+CREATE TABLE specialization (
+    id BIGINT PRIMARY KEY,
+    employee VARCHAR(128),
+    specialization VARCHAR(64)
+);
+
+CREATE TABLE faults (
+    id BIGINT PRIMARY KEY,
+    transaction VARCHAR(64),
+    id_employee BIGINT,
+    unit VARCHAR(128),
+    description VARCHAR(1024),
+    norm_hours BIGINT
+);
+CREATE INDEX faults_transaction ON faults (transaction);
+
+-- В H2 нет MD5(text), которой считаются отпечатки work_report_ppp и faults
+CREATE ALIAS IF NOT EXISTS MD5 DETERMINISTIC FOR 'back3.project.fleet.FleetDatabaseLoader.md5';